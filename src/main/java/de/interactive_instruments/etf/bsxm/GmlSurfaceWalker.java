@@ -0,0 +1,473 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm;
+
+import java.io.IOException;
+
+import org.basex.data.Data;
+import org.basex.util.Names;
+import org.basex.util.Token;
+
+import gnu.trove.TIntArrayList;
+
+/**
+ * Navigates through the GML surfaces of Features directly in the BaseX table.
+ *
+ * The walker resolves the supported element names once per database to name IDs
+ * and then only compares integers while iterating over the pre, size and kind
+ * values of the nodes. No XQuery nodes are created.
+ *
+ * The order of the visited geometries corresponds to the former XQuery
+ * topox:geometries() function:
+ * - Surface / PolyhedralSurface patches
+ * - MultiSurface members (Polygon, CompositeSurface, Surface, PolyhedralSurface)
+ * - CompositeSurface members (Polygon, CompositeSurface, Surface, PolyhedralSurface)
+ *
+ * The walkGeometries() function visits the posLists of all GML geometries in the
+ * order of the topox:parse-boundary() function, including line geometries.
+ *
+ * Not thread safe.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class GmlSurfaceWalker {
+
+	/**
+	 * Callbacks for the found geometric objects, interiors and posLists
+	 */
+	interface Visitor {
+
+		/**
+		 * Called before the exterior of a Polygon or PolygonPatch is visited or,
+		 * by walkGeometries(), before the posLists of a geometry are visited
+		 */
+		void nextGeometricObject() throws IOException;
+
+		/**
+		 * Called before the posLists of an interior are visited
+		 */
+		void nextInterior() throws IOException;
+
+		/**
+		 * Called for each posList text node of a LineStringSegment or Arc
+		 *
+		 * @param data database
+		 * @param textPre pre value of the posList text node
+		 * @param segmentType 1 for Arcs, 2 for LineStringSegments
+		 */
+		void posList(final Data data, final int textPre, final int segmentType) throws IOException;
+	}
+
+	private final static byte[] GML_URI = Token.token("http://www.opengis.net/gml/3.2");
+
+	// Codes for the supported element names
+	private final static byte NONE = 0;
+	private final static byte SURFACE = 1;
+	private final static byte POLYHEDRAL_SURFACE = 2;
+	private final static byte MULTI_SURFACE = 3;
+	private final static byte COMPOSITE_SURFACE = 4;
+	private final static byte SURFACE_MEMBER = 5;
+	private final static byte SURFACE_MEMBERS = 6;
+	private final static byte PATCHES = 7;
+	private final static byte POLYGON_PATCH = 8;
+	private final static byte POLYGON = 9;
+	private final static byte EXTERIOR = 10;
+	private final static byte INTERIOR = 11;
+	private final static byte RING = 12;
+	private final static byte CURVE_MEMBER = 13;
+	private final static byte CURVE = 14;
+	private final static byte SEGMENTS = 15;
+	private final static byte LINE_STRING_SEGMENT = 16;
+	private final static byte ARC = 17;
+	private final static byte POS_LIST = 18;
+
+	private final static byte[][] LOCAL_NAMES = {
+			null,
+			Token.token("Surface"),
+			Token.token("PolyhedralSurface"),
+			Token.token("MultiSurface"),
+			Token.token("CompositeSurface"),
+			Token.token("surfaceMember"),
+			Token.token("surfaceMembers"),
+			Token.token("patches"),
+			Token.token("PolygonPatch"),
+			Token.token("Polygon"),
+			Token.token("exterior"),
+			Token.token("interior"),
+			Token.token("Ring"),
+			Token.token("curveMember"),
+			Token.token("Curve"),
+			Token.token("segments"),
+			Token.token("LineStringSegment"),
+			Token.token("Arc"),
+			Token.token("posList"),
+	};
+
+	private final static String DEFAULT_PATH = "*:position";
+
+	// Local names of the path steps, null for a wildcard
+	private final byte[][] pathSteps;
+
+	// Tables of the current database
+	private Data data;
+	private int gmlUriId;
+	private byte[] nameCodes;
+	private boolean[][] pathStepMatches;
+
+	// Reused buffers
+	private TIntArrayList pathNodes = new TIntArrayList();
+	private TIntArrayList nextPathNodes = new TIntArrayList();
+	private final TIntArrayList roots = new TIntArrayList();
+
+	/**
+	 * Creates a new walker
+	 *
+	 * @param path path from the Feature to the geometry properties or geometries, i.e.
+	 *             'adv:position/gml:Surface'. Steps are compared by their local names.
+	 *             An empty path is interpreted as '*:position'.
+	 */
+	GmlSurfaceWalker(final String path) {
+		final String[] steps = (path == null || path.trim().isEmpty() ? DEFAULT_PATH : path.trim()).split("/");
+		this.pathSteps = new byte[steps.length][];
+		for (int i = 0; i < steps.length; i++) {
+			final String step = steps[i].trim();
+			final String localName = step.substring(step.indexOf(':') + 1);
+			pathSteps[i] = "*".equals(localName) ? null : Token.token(localName);
+		}
+	}
+
+	/**
+	 * Visit all surface geometries of one Feature
+	 *
+	 * @param data database of the Feature
+	 * @param featurePre pre value of the Feature
+	 * @param visitor callback object
+	 * @throws IOException if the visitor throws an exception
+	 */
+	void walk(final Data data, final int featurePre, final Visitor visitor) throws IOException {
+		init(data);
+		resolvePath(featurePre);
+
+		// The path either points to the geometry properties or to the geometries
+		roots.resetQuick();
+		for (int i = 0; i < pathNodes.size(); i++) {
+			final int pre = pathNodes.getQuick(i);
+			if (isGeometryRoot(pre)) {
+				roots.add(pre);
+			} else {
+				final int end = pre + data.size(pre, Data.ELEM);
+				for (int child = pre + data.attSize(pre, Data.ELEM); child < end; child += data.size(child,
+						data.kind(child))) {
+					if (data.kind(child) == Data.ELEM && isGeometryRoot(child)) {
+						roots.add(child);
+					}
+				}
+			}
+		}
+
+		// Surface|PolyhedralSurface/patches/PolygonPatch
+		for (int i = 0; i < roots.size(); i++) {
+			final int root = roots.getQuick(i);
+			final byte code = code(root);
+			if (code == SURFACE || code == POLYHEDRAL_SURFACE) {
+				walkPatches(root, visitor);
+			}
+		}
+		walkMembers(MULTI_SURFACE, visitor);
+		walkMembers(COMPOSITE_SURFACE, visitor);
+	}
+
+	/**
+	 * Visit the posLists of all GML geometries of one Feature, like the XQuery
+	 * path 'position/gml:*' followed by '//gml:posList' for each geometry
+	 *
+	 * The visitor is notified with nextGeometricObject() before the posLists of each
+	 * geometry. The posLists are passed with the segment type 1 if they belong to an
+	 * Arc, otherwise with 2. nextInterior() is not called.
+	 *
+	 * @param data database of the Feature
+	 * @param featurePre pre value of the Feature
+	 * @param visitor callback object
+	 * @throws IOException if the visitor throws an exception
+	 */
+	void walkGeometries(final Data data, final int featurePre, final Visitor visitor) throws IOException {
+		init(data);
+		resolvePath(featurePre);
+
+		// The path either points to the geometry properties or to the geometries
+		for (int i = 0; i < pathNodes.size(); i++) {
+			final int pre = pathNodes.getQuick(i);
+			if (isGmlElement(pre)) {
+				walkPosLists(pre, visitor);
+			} else {
+				final int end = pre + data.size(pre, Data.ELEM);
+				for (int child = pre + data.attSize(pre, Data.ELEM); child < end; child += data.size(child,
+						data.kind(child))) {
+					if (data.kind(child) == Data.ELEM && isGmlElement(child)) {
+						walkPosLists(child, visitor);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collect the nodes at the end of the path in pathNodes
+	 */
+	private void resolvePath(final int featurePre) {
+		pathNodes.resetQuick();
+		pathNodes.add(featurePre);
+		for (int s = 0; s < pathSteps.length; s++) {
+			nextPathNodes.resetQuick();
+			final boolean[] matches = pathStepMatches[s];
+			for (int i = 0; i < pathNodes.size(); i++) {
+				final int parent = pathNodes.getQuick(i);
+				final int end = parent + data.size(parent, Data.ELEM);
+				for (int pre = parent + data.attSize(parent, Data.ELEM); pre < end; pre += data.size(pre, data.kind(pre))) {
+					if (data.kind(pre) == Data.ELEM && matches(matches, data.name(pre))) {
+						nextPathNodes.add(pre);
+					}
+				}
+			}
+			final TIntArrayList swap = pathNodes;
+			pathNodes = nextPathNodes;
+			nextPathNodes = swap;
+		}
+	}
+
+	private void init(final Data data) {
+		final Names names = data.elemNames;
+		if (this.data == data && nameCodes.length > names.size()) {
+			return;
+		}
+		this.data = data;
+		this.gmlUriId = data.nspaces.uriId(GML_URI);
+		this.nameCodes = new byte[names.size() + 1];
+		this.pathStepMatches = new boolean[pathSteps.length][names.size() + 1];
+		for (int id = 1; id <= names.size(); id++) {
+			final byte[] localName = Token.local(names.key(id));
+			for (byte code = 1; code < LOCAL_NAMES.length; code++) {
+				if (Token.eq(localName, LOCAL_NAMES[code])) {
+					nameCodes[id] = code;
+					break;
+				}
+			}
+			for (int s = 0; s < pathSteps.length; s++) {
+				pathStepMatches[s][id] = pathSteps[s] == null || Token.eq(localName, pathSteps[s]);
+			}
+		}
+	}
+
+	private static boolean matches(final boolean[] matches, final int nameId) {
+		return nameId < matches.length && matches[nameId];
+	}
+
+	/**
+	 * Get the code of a GML element
+	 *
+	 * @return element code or NONE if the element is unknown or not in the GML namespace
+	 */
+	private byte code(final int pre) {
+		final int nameId = data.name(pre);
+		if (nameId >= nameCodes.length || nameCodes[nameId] == NONE || gmlUriId == 0
+				|| data.uriId(pre, Data.ELEM) != gmlUriId) {
+			return NONE;
+		}
+		return nameCodes[nameId];
+	}
+
+	private boolean isGmlElement(final int pre) {
+		return gmlUriId != 0 && data.uriId(pre, Data.ELEM) == gmlUriId;
+	}
+
+	private boolean isGeometryRoot(final int pre) {
+		final byte code = code(pre);
+		return code == SURFACE || code == POLYHEDRAL_SURFACE || code == MULTI_SURFACE || code == COMPOSITE_SURFACE;
+	}
+
+	/**
+	 * Get the next child element with the code or -1
+	 */
+	private int nextChild(final int parent, final int from, final byte code) {
+		final int end = parent + data.size(parent, Data.ELEM);
+		for (int pre = from; pre < end; pre += data.size(pre, data.kind(pre))) {
+			if (data.kind(pre) == Data.ELEM && code(pre) == code) {
+				return pre;
+			}
+		}
+		return -1;
+	}
+
+	private int firstChild(final int parent, final byte code) {
+		return nextChild(parent, parent + data.attSize(parent, Data.ELEM), code);
+	}
+
+	private int nextSibling(final int parent, final int pre, final byte code) {
+		return nextChild(parent, pre + data.size(pre, Data.ELEM), code);
+	}
+
+	/**
+	 * MultiSurface/(surfaceMember|surfaceMembers)/... or CompositeSurface/surfaceMember/...
+	 *
+	 * The members are visited per type: Polygons, CompositeSurfaces, Surfaces and
+	 * PolyhedralSurfaces.
+	 */
+	private void walkMembers(final byte containerCode, final Visitor visitor) throws IOException {
+		final byte[] memberTypes = {POLYGON, COMPOSITE_SURFACE, SURFACE, POLYHEDRAL_SURFACE};
+		for (final byte memberType : memberTypes) {
+			for (int i = 0; i < roots.size(); i++) {
+				final int container = roots.getQuick(i);
+				if (code(container) != containerCode) {
+					continue;
+				}
+				final int end = container + data.size(container, Data.ELEM);
+				for (int member = container + data.attSize(container, Data.ELEM); member < end; member += data.size(member,
+						data.kind(member))) {
+					if (data.kind(member) != Data.ELEM) {
+						continue;
+					}
+					final byte memberCode = code(member);
+					if (memberCode != SURFACE_MEMBER && (memberCode != SURFACE_MEMBERS || containerCode != MULTI_SURFACE)) {
+						continue;
+					}
+					for (int geometry = firstChild(member, memberType); geometry != -1; geometry = nextSibling(member,
+							geometry, memberType)) {
+						switch (memberType) {
+						case POLYGON:
+							walkPolygon(geometry, visitor);
+							break;
+						case COMPOSITE_SURFACE:
+							walkNestedPolygons(geometry, visitor);
+							break;
+						default:
+							walkPatches(geometry, visitor);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Surface|PolyhedralSurface/patches/PolygonPatch
+	 */
+	private void walkPatches(final int surface, final Visitor visitor) throws IOException {
+		for (int patches = firstChild(surface, PATCHES); patches != -1; patches = nextSibling(surface, patches, PATCHES)) {
+			for (int patch = firstChild(patches, POLYGON_PATCH); patch != -1; patch = nextSibling(patches, patch,
+					POLYGON_PATCH)) {
+				walkPolygon(patch, visitor);
+			}
+		}
+	}
+
+	/**
+	 * CompositeSurface/surfaceMember//(PolygonPatch|Polygon)
+	 */
+	private void walkNestedPolygons(final int compositeSurface, final Visitor visitor) throws IOException {
+		for (int member = firstChild(compositeSurface, SURFACE_MEMBER); member != -1; member = nextSibling(
+				compositeSurface, member, SURFACE_MEMBER)) {
+			final int end = member + data.size(member, Data.ELEM);
+			for (int pre = member + data.attSize(member, Data.ELEM); pre < end;) {
+				final int kind = data.kind(pre);
+				if (kind == Data.ELEM) {
+					final byte code = code(pre);
+					if (code == POLYGON || code == POLYGON_PATCH) {
+						walkPolygon(pre, visitor);
+					}
+					pre += data.attSize(pre, kind);
+				} else {
+					pre++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Polygon|PolygonPatch: exterior and interior rings
+	 */
+	private void walkPolygon(final int polygon, final Visitor visitor) throws IOException {
+		visitor.nextGeometricObject();
+		for (int exterior = firstChild(polygon, EXTERIOR); exterior != -1; exterior = nextSibling(polygon, exterior,
+				EXTERIOR)) {
+			walkRing(exterior, visitor);
+		}
+		for (int interior = firstChild(polygon, INTERIOR); interior != -1; interior = nextSibling(polygon, interior,
+				INTERIOR)) {
+			visitor.nextInterior();
+			walkRing(interior, visitor);
+		}
+	}
+
+	/**
+	 * (exterior|interior)/Ring/curveMember/Curve/segments/(LineStringSegment|Arc)/posList/text()
+	 */
+	private void walkRing(final int boundary, final Visitor visitor) throws IOException {
+		for (int ring = firstChild(boundary, RING); ring != -1; ring = nextSibling(boundary, ring, RING)) {
+			for (int curveMember = firstChild(ring, CURVE_MEMBER); curveMember != -1; curveMember = nextSibling(ring,
+					curveMember, CURVE_MEMBER)) {
+				for (int curve = firstChild(curveMember, CURVE); curve != -1; curve = nextSibling(curveMember, curve,
+						CURVE)) {
+					for (int segments = firstChild(curve, SEGMENTS); segments != -1; segments = nextSibling(curve, segments,
+							SEGMENTS)) {
+						walkSegments(segments, visitor);
+					}
+				}
+			}
+		}
+	}
+
+	private void walkSegments(final int segments, final Visitor visitor) throws IOException {
+		final int end = segments + data.size(segments, Data.ELEM);
+		for (int segment = segments + data.attSize(segments, Data.ELEM); segment < end; segment += data.size(segment,
+				data.kind(segment))) {
+			if (data.kind(segment) != Data.ELEM) {
+				continue;
+			}
+			final byte segmentCode = code(segment);
+			if (segmentCode == LINE_STRING_SEGMENT || segmentCode == ARC) {
+				for (int posList = firstChild(segment, POS_LIST); posList != -1; posList = nextSibling(segment, posList,
+						POS_LIST)) {
+					final int textPre = posList + data.attSize(posList, Data.ELEM);
+					if (textPre < posList + data.size(posList, Data.ELEM) && data.kind(textPre) == Data.TEXT) {
+						visitor.posList(data, textPre, segmentCode == ARC ? 1 : 2);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * geometry//posList/text()
+	 */
+	private void walkPosLists(final int geometry, final Visitor visitor) throws IOException {
+		visitor.nextGeometricObject();
+		final int end = geometry + data.size(geometry, Data.ELEM);
+		for (int pre = geometry + data.attSize(geometry, Data.ELEM); pre < end;) {
+			final int kind = data.kind(pre);
+			if (kind == Data.ELEM) {
+				if (code(pre) == POS_LIST) {
+					final int textPre = pre + data.attSize(pre, Data.ELEM);
+					if (textPre < pre + data.size(pre, Data.ELEM) && data.kind(textPre) == Data.TEXT) {
+						visitor.posList(data, textPre, code(data.parent(pre, Data.ELEM)) == ARC ? 1 : 2);
+					}
+				}
+				pre += data.attSize(pre, kind);
+			} else {
+				pre++;
+			}
+		}
+	}
+}
@@ -23,6 +23,8 @@ import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
 import java.util.jar.Manifest;
 
 import javax.management.*;
@@ -32,10 +34,15 @@ import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.commons.lang3.ClassUtils;
 import org.basex.core.BaseXException;
+import org.basex.data.Data;
+import org.basex.query.QueryException;
 import org.basex.query.QueryModule.Deterministic;
 import org.basex.query.QueryModule.Permission;
 import org.basex.query.QueryModule.Requires;
+import org.basex.query.value.Value;
+import org.basex.query.value.item.Item;
 import org.basex.query.value.node.DBNode;
+import org.basex.util.Token;
 
 import de.interactive_instruments.IFile;
 import de.interactive_instruments.JarUtils;
@@ -61,6 +68,10 @@ public class TopoX {
 	private final static int BOUNDARY_ID_OFFSET = 4096;
 	private final List<BoundaryBuilder> boundaries = new ArrayList();
 
+	// Used to avoid conflicts between the Theme, BoundaryBuilder and FanOutParser IDs
+	private final static int FAN_OUT_PARSER_ID_OFFSET = 8192;
+	private final List<FanOutParser> fanOutParsers = new ArrayList();
+
 	// For example "DB-"
 	private String dbnamePrefix;
 
@@ -72,6 +83,9 @@ public class TopoX {
 
 	private final MBeanServer mBeanServer;
 
+	// Walkers for navigating through the geometries, mapped by their path
+	private final Map<String, GmlSurfaceWalker> surfaceWalkers = new HashMap<>();
+
 	public TopoX() {
 		if (PropertyUtils.getenvOrProperty("ETF_AM_TOPOX_MB", "false").equals("true")) {
 			mBeanServer = ManagementFactory.getPlatformMBeanServer();
@@ -128,6 +142,27 @@ public class TopoX {
 	@Requires(Permission.CREATE)
 	public int newTopologyBuilder(final String themeName, final int initialEdgeCapacity, final String outputDir)
 			throws BaseXException {
+		return newTopologyBuilder(themeName, initialEdgeCapacity, outputDir, false);
+	}
+
+	/**
+	 * Creates a new topology builder
+	 *
+	 * @param themeName name of the topological name
+	 * @param initialEdgeCapacity xpected number of edges.
+	 *                               This value should be about 1995000 * number of databases
+	 *                               (experience value from tests). The number is used to allocate
+	 *                               the data structures accordingly and to increase the performance.
+	 * @param outputDir directory for storing error information
+	 * @param pipelined build the topology in a separate thread, while the calling thread
+	 *                     parses the posLists. The thread is stopped when parsing completes.
+	 * @return ID of the topology name
+	 * @throws BaseXException  if the $tempOutputDir directory cannot be used to write files or
+	 * if the name name already exists.
+	 */
+	@Requires(Permission.CREATE)
+	public int newTopologyBuilder(final String themeName, final int initialEdgeCapacity, final String outputDir,
+			final boolean pipelined) throws BaseXException {
 		if (!themeNames.add(themeName)) {
 			throw new BaseXException("Invalid theme name: already exists.");
 		}
@@ -146,7 +181,7 @@ public class TopoX {
 			topologyErrorCollector.init();
 
 			final Theme theme = new Theme(themeName, topologyErrorCollector, errorOutputFile.toString(), writer,
-					topologyBuilder);
+					topologyBuilder, pipelined);
 			themes.add(theme);
 			if (mBeanServer != null) {
 				try {
@@ -232,6 +267,70 @@ public class TopoX {
 		return this.boundaries.size() - 1 + BOUNDARY_ID_OFFSET;
 	}
 
+	/**
+	 * Creates a new Boundary Builder that snaps boundary points to the nodes of the
+	 * topology within a tolerance
+	 *
+	 * Points that are not near a node but near an edge are reported as lying
+	 * on the edge instead of being detached.
+	 *
+	 * @param topologyId ID of the topology
+	 * @param tolerance maximum distance between a boundary point and a node or an edge
+	 *
+	 * @return ID of the boundary check object
+	 * @throws BaseXException if the $topologyId is unknown
+	 */
+	@Requires(Permission.CREATE)
+	public int newBoundaryBuilder(final int topologyId, final double tolerance)
+			throws BaseXException {
+		if (topologyId < 0 || topologyId >= themes.size()) {
+			throw new BaseXException("Unknown topology ID: " + String.valueOf(topologyId));
+		}
+		this.boundaries.add(new BoundaryBuilder(themes.get(topologyId), tolerance));
+		return this.boundaries.size() - 1 + BOUNDARY_ID_OFFSET;
+	}
+
+	/**
+	 * Creates a new parser that parses the posLists once and passes the coordinates
+	 * to multiple Themes and Boundary Builders.
+	 *
+	 * The Theme of a Boundary Builder must have been built before and must not be
+	 * fed by the same parser.
+	 *
+	 * @param ids IDs of the Themes and Boundary Builders, at most 64
+	 * @return ID of the Fan-out parser
+	 * @throws BaseXException if an ID is unknown, too many IDs are passed or a
+	 * Boundary Builder and its Theme are passed
+	 */
+	@Requires(Permission.CREATE)
+	public int newFanOutParser(final Value ids) throws BaseXException {
+		if (ids.size() > FanOutParser.MAX_SINKS) {
+			throw new BaseXException("Too many topology and boundary IDs, maximum is " + FanOutParser.MAX_SINKS);
+		}
+		final FanOutParser fanOutParser = new FanOutParser();
+		for (final Item item : ids) {
+			final int id;
+			try {
+				id = (int) item.itr(null);
+			} catch (final QueryException e) {
+				throw new BaseXException(e);
+			}
+			try {
+				if (id >= BOUNDARY_ID_OFFSET && id - BOUNDARY_ID_OFFSET < boundaries.size()) {
+					fanOutParser.addSink(boundaries.get(id - BOUNDARY_ID_OFFSET));
+				} else if (id >= 0 && id < themes.size()) {
+					fanOutParser.addSink(themes.get(id));
+				} else {
+					throw new BaseXException("Unknown topology or boundary ID: " + String.valueOf(id));
+				}
+			} catch (final IllegalArgumentException e) {
+				throw new BaseXException(e.getMessage());
+			}
+		}
+		this.fanOutParsers.add(fanOutParser);
+		return this.fanOutParsers.size() - 1 + FAN_OUT_PARSER_ID_OFFSET;
+	}
+
 	// Parsing
 	///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
@@ -279,6 +378,184 @@ public class TopoX {
 		themes.get(id).parser.parseDirectPositions(posList.data().text(posList.pre(), true), false, genIndex(posList), type);
 	}
 
+	/**
+	 * Parse the surfaces of multiple Features with one call
+	 *
+	 * This function replaces the nextFeature(), nextGeometricObject(), nextInterior() and
+	 * parseSegment() calls per Feature. The Surfaces, MultiSurfaces, CompositeSurfaces and
+	 * PolyhedralSurfaces and their posLists are looked up directly in the database.
+	 *
+	 * @param id ID of Topology Builder
+	 * @param objects Features
+	 * @param path path from the Features to the geometry properties or geometries,
+	 *             i.e. 'adv:position'. The steps are compared by their local names.
+	 * @param type segment type hint: 1 if all segments are arcs, 2 if there are no arcs
+	 *                or 0 to determine the type for each segment
+	 * @throws IOException if an object is not a database node
+	 */
+	@Requires(Permission.READ)
+	public void parseSurfaces(final int id, final Value objects, final String path, final int type)
+			throws IOException {
+		final Theme theme = themes.get(id);
+		final SurfaceParsingVisitor visitor = new SurfaceParsingVisitor(theme.parser, theme::nextInterior, type);
+		final GmlSurfaceWalker walker = surfaceWalker(path);
+		for (final Item object : objects) {
+			walkFeature(walker::walk, object, visitor);
+		}
+		theme.sync();
+	}
+
+	/**
+	 * Parse the surfaces of multiple Features once and pass the coordinates to
+	 * all Themes and Boundary Builders of a Fan-out parser.
+	 *
+	 * Only the rings of the surfaces are parsed, so line geometries are not passed
+	 * to the Boundary Builders. Boundaries of line Features must be parsed with
+	 * {@link #parseBoundary(int, DBNode)}.
+	 *
+	 * @param id ID of the Fan-out parser
+	 * @param objects Features
+	 * @param path path from the Features to the geometry properties or geometries
+	 * @param selections one bit mask per Feature that selects the Themes and Boundary Builders
+	 *                      that receive the Feature. Bit i stands for the i-th ID that was passed
+	 *                      to {@link #newFanOutParser(Value)}. If empty, all Features are passed
+	 *                      to all Themes and Boundary Builders.
+	 * @throws IOException if an object is not a database node or the number of selections does not
+	 * match the number of Features
+	 */
+	@Requires(Permission.READ)
+	public void parseSurfacesFanOut(final int id, final Value objects, final String path, final Value selections)
+			throws IOException {
+		final FanOutParser fanOutParser = fanOutParsers.get(id - FAN_OUT_PARSER_ID_OFFSET);
+		final SurfaceParsingVisitor visitor = new SurfaceParsingVisitor(fanOutParser.parser,
+				fanOutParser::nextInterior, 0);
+		walkFeatures(surfaceWalker(path)::walk, objects, visitor, selections, fanOutParser::select);
+		fanOutParser.sync();
+	}
+
+	/**
+	 * Parse the boundaries of multiple Features with several Boundary Builders in
+	 * parallel.
+	 *
+	 * The posLists of all geometries are read once, like by the parse-boundary()
+	 * function, and then parsed in batches by one task per Boundary Builder. The
+	 * errors of each batch are passed to the error collectors in the order of the IDs.
+	 * The topologies of the Boundary Builders must have been built completely before.
+	 *
+	 * @param ids IDs of the Boundary Builders, at most 64
+	 * @param objects Features
+	 * @param path path from the Features to the geometry properties or geometries
+	 * @param selections one bit mask per Feature that selects the Boundary Builders
+	 *                      that receive the Feature. Bit i stands for the i-th ID.
+	 *                      If empty, all Features are passed to all Boundary Builders.
+	 * @throws IOException if an ID is unknown, an object is not a database node or the
+	 * number of selections does not match the number of Features
+	 */
+	@Requires(Permission.READ)
+	public void parseBoundariesParallel(final Value ids, final Value objects, final String path,
+			final Value selections) throws IOException {
+		if (ids.size() > FanOutParser.MAX_SINKS) {
+			throw new BaseXException("Too many boundary IDs, maximum is " + FanOutParser.MAX_SINKS);
+		}
+		final List<BoundaryBuilder> boundaryBuilders = new ArrayList<>();
+		for (final Item item : ids) {
+			final int id;
+			try {
+				id = (int) item.itr(null);
+			} catch (final QueryException e) {
+				throw new BaseXException(e);
+			}
+			if (id < BOUNDARY_ID_OFFSET || id - BOUNDARY_ID_OFFSET >= boundaries.size()) {
+				throw new BaseXException("Unknown boundary ID: " + String.valueOf(id));
+			}
+			boundaryBuilders.add(boundaries.get(id - BOUNDARY_ID_OFFSET));
+		}
+		final ParallelBoundaryParser parallelParser = new ParallelBoundaryParser(boundaryBuilders,
+				ForkJoinPool.commonPool());
+		// geotype 2: use pass through handler
+		final SurfaceParsingVisitor visitor = new SurfaceParsingVisitor(parallelParser.parser,
+				parallelParser::nextInterior, 2);
+		walkFeatures(surfaceWalker(path)::walkGeometries, objects, visitor, selections, parallelParser::select);
+		parallelParser.parse();
+	}
+
+	/**
+	 * Walks through the geometries of one Feature
+	 */
+	private interface FeatureWalk {
+		void walk(final Data data, final int featurePre, final GmlSurfaceWalker.Visitor visitor) throws IOException;
+	}
+
+	private void walkFeatures(final FeatureWalk walker, final Value objects,
+			final GmlSurfaceWalker.Visitor visitor, final Value selections, final LongConsumer select)
+			throws IOException {
+		if (selections.size() == 0) {
+			select.accept(FanOutParser.ALL_SINKS);
+			for (final Item object : objects) {
+				walkFeature(walker, object, visitor);
+			}
+		} else {
+			if (selections.size() != objects.size()) {
+				throw new BaseXException("The number of selections (" + selections.size()
+						+ ") does not match the number of objects (" + objects.size() + ")");
+			}
+			final Iterator<Item> selectionIterator = selections.iterator();
+			for (final Item object : objects) {
+				try {
+					select.accept(selectionIterator.next().itr(null));
+				} catch (final QueryException e) {
+					throw new BaseXException(e);
+				}
+				walkFeature(walker, object, visitor);
+			}
+		}
+	}
+
+	private void walkFeature(final FeatureWalk walker, final Item object, final GmlSurfaceWalker.Visitor visitor)
+			throws IOException {
+		if (!(object instanceof DBNode)) {
+			throw new BaseXException("Unsupported object, database node expected: " + object);
+		}
+		final DBNode node = (DBNode) object;
+		currentObjectPre = node.pre();
+		walker.walk(node.data(), currentObjectPre, visitor);
+	}
+
+	/**
+	 * Passes the posLists found by a GmlSurfaceWalker to a parser
+	 */
+	private final class SurfaceParsingVisitor implements GmlSurfaceWalker.Visitor {
+		private final PosListParser parser;
+		private final Runnable nextInterior;
+		private final int type;
+
+		private SurfaceParsingVisitor(final PosListParser parser, final Runnable nextInterior, final int type) {
+			this.parser = parser;
+			this.nextInterior = nextInterior;
+			this.type = type;
+		}
+
+		@Override
+		public void nextGeometricObject() {
+			parser.nextGeometricObject();
+		}
+
+		@Override
+		public void nextInterior() {
+			nextInterior.run();
+		}
+
+		@Override
+		public void posList(final Data data, final int textPre, final int segmentType) {
+			parser.parseDirectPositions(data.text(textPre, true), false, genIndex(data, textPre),
+					type == 0 ? segmentType : type);
+		}
+	}
+
+	private GmlSurfaceWalker surfaceWalker(final String path) {
+		return surfaceWalkers.computeIfAbsent(path, GmlSurfaceWalker::new);
+	}
+
 	/**
 	 * Switch the Topology Builder to the next interior
 	 *
@@ -289,6 +566,34 @@ public class TopoX {
 		themes.get(id).nextInterior();
 	}
 
+	/**
+	 * Enable checks of the geometry that are run while the topology is built
+	 *
+	 * @param id ID of Topology Builder
+	 * @param minSegmentLength segments shorter than this length are reported, 0 disables the check
+	 * @param spikeAngle vertices where the direction turns back with an angle less than this value
+	 *                   in degrees are reported, 0 disables the check
+	 * @param duplicatePoints report consecutive duplicate points
+	 */
+	@Requires(Permission.NONE)
+	public void enableGeometryChecks(final int id, final double minSegmentLength, final double spikeAngle,
+			final boolean duplicatePoints) {
+		themes.get(id).enableGeometryChecks(minSegmentLength, spikeAngle, duplicatePoints);
+	}
+
+	/**
+	 * Enable checks of the rings that are run while the topology is built
+	 *
+	 * @param id ID of Topology Builder
+	 * @param orientation report exterior rings that are not oriented counter-clockwise
+	 *                       and interior rings that are not oriented clockwise
+	 * @param closure report rings whose last point is not the first point
+	 */
+	@Requires(Permission.NONE)
+	public void enableRingChecks(final int id, final boolean orientation, final boolean closure) {
+		themes.get(id).enableRingChecks(orientation, closure);
+	}
+
 	/**
 	 * Detect holes
 	 *
@@ -311,6 +616,186 @@ public class TopoX {
 		return themes.get(id).detectFreeStandingSurfaces();
 	}
 
+	/**
+	 * Run several checks in one traversal of the topology
+	 *
+	 * @param id ID of Topology Builder
+	 * @param checks names of the checks: 'holes' or 'free-standing-surfaces'
+	 * @return number of errors and elapsed nanoseconds for each check
+	 * @throws BaseXException if a check is unknown
+	 */
+	@Deterministic
+	@Requires(Permission.NONE)
+	public long[] runChecks(final int id, final Value checks) throws BaseXException {
+		final String[] names = new String[(int) checks.size()];
+		int i = 0;
+		for (final Item item : checks) {
+			try {
+				names[i++] = Token.string(item.string(null));
+			} catch (final QueryException e) {
+				throw new BaseXException(e);
+			}
+		}
+		try {
+			return themes.get(id).runChecks(names);
+		} catch (final IllegalArgumentException e) {
+			throw new BaseXException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Detect edges that cross each other without a shared node
+	 *
+	 * @param id ID of Topology Builder
+	 */
+	@Deterministic
+	@Requires(Permission.NONE)
+	public int detectIntersections(final int id) {
+		return themes.get(id).detectIntersections();
+	}
+
+	/**
+	 * Detect nodes that lie on the interior of another edge
+	 *
+	 * @param id ID of Topology Builder
+	 * @param tolerance maximum distance between a node and an edge
+	 */
+	@Deterministic
+	@Requires(Permission.NONE)
+	public int detectNodesOnEdges(final int id, final double tolerance) {
+		return themes.get(id).detectNodesOnEdges(tolerance);
+	}
+
+	/**
+	 * Detect slivers and gaps between nearly coincident edges of different objects
+	 *
+	 * @param id ID of Topology Builder
+	 * @param tolerance maximum distance between the edges
+	 * @param minArea slivers with an area up to this value are ignored
+	 */
+	@Deterministic
+	@Requires(Permission.NONE)
+	public int detectSlivers(final int id, final double tolerance, final double minArea) {
+		return themes.get(id).detectSlivers(tolerance, minArea);
+	}
+
+	// Spatial queries
+	///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Find the objects on both sides of the edges whose envelopes intersect a window
+	 *
+	 * The spatial index is built with the first call, the topology must be built
+	 * completely before.
+	 *
+	 * @param id ID of Topology Builder
+	 * @return distinct compressed object locations
+	 */
+	@Requires(Permission.NONE)
+	public long[] objectsInWindow(final int id, final double minX, final double minY, final double maxX,
+			final double maxY) {
+		return themes.get(id).objectsInWindow(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Find the objects on both sides of the edges that are nearest to a point
+	 *
+	 * The spatial index is built with the first call, the topology must be built
+	 * completely before.
+	 *
+	 * @param id ID of Topology Builder
+	 * @param maxEdges maximum number of edges to consider
+	 * @param maxDistance maximum distance between the point and the edges
+	 * @return distinct compressed object locations, ordered by the distance of their edges
+	 */
+	@Requires(Permission.NONE)
+	public long[] objectsNearPoint(final int id, final double x, final double y, final int maxEdges,
+			final double maxDistance) {
+		return themes.get(id).objectsNearPoint(x, y, maxEdges, maxDistance);
+	}
+
+	/**
+	 * Snap a point to the nearest node or, if there is no node within the tolerance,
+	 * to the nearest edge
+	 *
+	 * @param id ID of Topology Builder
+	 * @param tolerance maximum distance between the point and the node or edge
+	 * @return X and Y coordinate of the snapped point or an empty array
+	 */
+	@Requires(Permission.NONE)
+	public double[] snap(final int id, final double x, final double y, final double tolerance) {
+		return themes.get(id).snap(x, y, tolerance);
+	}
+
+	/**
+	 * Find the objects whose surfaces contain points
+	 *
+	 * The spatial index is built with the first call, the topology must be built
+	 * completely before.
+	 *
+	 * @param id ID of Topology Builder
+	 * @param coordinates X and Y coordinates of the points
+	 * @return compressed object location for each point, 0 if no object contains the point
+	 */
+	@Requires(Permission.NONE)
+	public long[] objectsAt(final int id, final Value coordinates) throws BaseXException {
+		if (coordinates.size() % 2 != 0) {
+			throw new BaseXException("Odd number of coordinates: " + coordinates.size());
+		}
+		final double[] values = new double[(int) coordinates.size()];
+		int i = 0;
+		for (final Item item : coordinates) {
+			try {
+				values[i++] = item.dbl(null);
+			} catch (final QueryException e) {
+				throw new BaseXException(e);
+			}
+		}
+		return themes.get(id).objectsAt(values);
+	}
+
+	// Neighbourhood queries
+	///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Find the objects that share at least one edge with an object
+	 *
+	 * The neighbours are determined with the first call, the topology must be
+	 * built completely before.
+	 *
+	 * @param id ID of Topology Builder
+	 * @param compressedIndex TopoX index of the object or of one of its geometric objects
+	 * @return compressed object locations
+	 */
+	@Requires(Permission.NONE)
+	public long[] neighbours(final int id, final long compressedIndex) {
+		return themes.get(id).neighbours(compressedIndex);
+	}
+
+	/**
+	 * Get the number of edges an object shares with each neighbour
+	 *
+	 * @param id ID of Topology Builder
+	 * @param compressedIndex TopoX index of the object or of one of its geometric objects
+	 * @return number of edges, in the order of the neighbours() result
+	 */
+	@Requires(Permission.NONE)
+	public int[] neighbourEdgeCounts(final int id, final long compressedIndex) {
+		return themes.get(id).neighbourEdgeCounts(compressedIndex);
+	}
+
+	/**
+	 * Get the length of the edges an object shares with each neighbour
+	 *
+	 * @param id ID of Topology Builder
+	 * @param compressedIndex TopoX index of the object or of one of its geometric objects
+	 * @return length, in the order of the neighbours() result
+	 */
+	@Requires(Permission.NONE)
+	public double[] neighbourLengths(final int id, final long compressedIndex) {
+		return themes.get(id).neighbourLengths(compressedIndex);
+	}
+
 	// Border parsing
 	///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
@@ -339,6 +824,30 @@ public class TopoX {
 				genIndex(geo), 2);
 	}
 
+	/**
+	 * Get the number of topology edges that are covered by the boundaries
+	 *
+	 * @param id ID of Boundary Builder
+	 * @return number of covered edges
+	 */
+	@Requires(Permission.NONE)
+	public int coveredEdges(final int id) {
+		return boundaries.get(id - BOUNDARY_ID_OFFSET).coveredEdges();
+	}
+
+	/**
+	 * Detect the edges on the outline of the topology that are not covered by
+	 * the boundaries
+	 *
+	 * @param id ID of Boundary Builder
+	 * @return number of polylines of uncovered edges
+	 */
+	@Deterministic
+	@Requires(Permission.NONE)
+	public int detectUncoveredEdges(final int id) {
+		return boundaries.get(id - BOUNDARY_ID_OFFSET).detectUncoveredEdges();
+	}
+
 	// Error output
 	///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
@@ -353,6 +862,7 @@ public class TopoX {
 	@Deterministic
 	@Requires(Permission.NONE)
 	public String errorFile(final int id) {
+		themes.get(id).finish();
 		themes.get(id).topologyErrorCollector.release();
 		return themes.get(id).errorFile;
 	}
@@ -373,6 +883,43 @@ public class TopoX {
 		themes.get(id).geoJsonWriter.addCoordinates(coordinateNode.data().text(coordinateNode.pre(), true));
 	}
 
+	/**
+	 * Add the exterior and interior coordinates of all surfaces of a Feature
+	 * to the current GeoJson Feature
+	 *
+	 * @param id ID of Topology Builder
+	 * @param object Feature
+	 * @param path path from the Feature to the geometry properties or geometries
+	 * @throws IOException if writing fails
+	 */
+	@Requires(Permission.READ)
+	public void addGeoJsonGeometries(final int id, final DBNode object, final String path) throws IOException {
+		final GeoJsonWriter geoJsonWriter = themes.get(id).geoJsonWriter;
+		surfaceWalker(path).walk(object.data(), object.pre(), new GmlSurfaceWalker.Visitor() {
+			private boolean interior;
+
+			@Override
+			public void nextGeometricObject() {
+				interior = false;
+			}
+
+			@Override
+			public void nextInterior() throws IOException {
+				interior = true;
+				geoJsonWriter.nextInterior();
+			}
+
+			@Override
+			public void posList(final Data data, final int textPre, final int segmentType) throws IOException {
+				if (interior) {
+					geoJsonWriter.addCoordinatesInterior(data.text(textPre, true));
+				} else {
+					geoJsonWriter.addCoordinates(data.text(textPre, true));
+				}
+			}
+		});
+	}
+
 	@Requires(Permission.NONE)
 	public void nextGeoJsonInterior(final int id) throws IOException {
 		themes.get(id).geoJsonWriter.nextInterior();
@@ -513,6 +1060,21 @@ public class TopoX {
 						objectIndex(compressedIndex));
 	}
 
+	/**
+	 * Get the compressed long TopoX index of an object
+	 *
+	 * Note: initDb has to be called first
+	 *
+	 * @param object object
+	 * @return TopoX index
+	 */
+	@Requires(Permission.NONE)
+	public long objectIndex(final DBNode object) {
+		return compress(
+				makeCompressedNodeIndex(dbIndex(object.data()), 0),
+				object.pre());
+	}
+
 	private static int makeCompressedNodeIndex(final byte dbIndex, final int objectGeoDiffIndex) {
 		return (((dbIndex) << 24) | objectGeoDiffIndex & 0xFFFFFF);
 	}
@@ -526,13 +1088,20 @@ public class TopoX {
 	}
 
 	private long genIndex(final DBNode node) {
-		final String name = node.data().meta.name;
-		final byte dbIndex = (byte) ((name.charAt(dbNameLength - 1) - '0') +
+		return genIndex(node.data(), node.pre());
+	}
+
+	private long genIndex(final Data data, final int pre) {
+		return compress(
+				makeCompressedNodeIndex(dbIndex(data), pre - this.currentObjectPre),
+				pre);
+	}
+
+	private byte dbIndex(final Data data) {
+		final String name = data.meta.name;
+		return (byte) ((name.charAt(dbNameLength - 1) - '0') +
 				(name.charAt(dbNameLength - 2) - '0') * 10 +
 				(name.charAt(dbNameLength - 3) - '0') * 100);
-		return compress(
-				makeCompressedNodeIndex(dbIndex, node.pre() - this.currentObjectPre),
-				node.pre());
 	}
 
 }
@@ -16,65 +16,180 @@
 package de.interactive_instruments.etf.bsxm.topox;
 
 import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_EDGE_INVALID;
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_OVERLAP;
 import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_POINT_DETACHED;
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_POINT_ON_EDGE;
 
 /**
  * An object to verify that boundaries lie exactly on edges.
  *
+ * With a tolerance, boundary points are snapped to the nearest node within the
+ * tolerance. Points that are not near a node but near an edge are reported as
+ * lying on the edge instead of being detached.
+ *
+ * The edges of the boundaries are marked in a bit set with one bit per edge
+ * of the topology. An edge that is passed by a second boundary is reported as
+ * overlap. After all boundaries have been parsed, the edges on the outline of
+ * the topology that are not covered can be reported.
+ *
  * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
  */
 public class BoundaryBuilder {
 	public final PosListParser parser;
+	private final Theme theme;
+	private final InternalHandler handler;
 
 	public BoundaryBuilder(final Theme theme) {
-		final InternalHandler handler = new InternalHandler(theme, theme.topologyErrorCollector);
+		this(theme, 0);
+	}
+
+	/**
+	 * Creates a new Boundary Builder
+	 *
+	 * @param tolerance maximum distance between a boundary point and a node or an edge,
+	 *                     0 if the points must match the nodes exactly
+	 */
+	public BoundaryBuilder(final Theme theme, final double tolerance) {
+		theme.sync();
+		this.theme = theme;
+		this.handler = new InternalHandler(theme, theme.topologyErrorCollector, tolerance);
 		this.parser = new HashingPosListParser(handler);
 	}
 
+	HashingSegmentHandler handler() {
+		return handler;
+	}
+
+	Theme theme() {
+		return theme;
+	}
+
+	/**
+	 * Get the collector that receives the errors of the boundaries
+	 *
+	 * @return error collector of the Theme
+	 */
+	TopologyErrorCollector errorCollector() {
+		return theme.topologyErrorCollector;
+	}
+
+	/**
+	 * Pass the errors of the following boundaries to another collector
+	 *
+	 * @param errorCollector collector or null to pass the errors to the collector
+	 *                          of the Theme again
+	 */
+	void redirectErrors(final TopologyErrorCollector errorCollector) {
+		handler.errorCollector = errorCollector != null ? errorCollector : theme.topologyErrorCollector;
+	}
+
+	/**
+	 * Get the number of topology edges that are covered by the boundaries
+	 *
+	 * @return number of covered edges
+	 */
+	public int coveredEdges() {
+		return handler.covered.cardinality();
+	}
+
+	/**
+	 * Report the edges on the outline of the topology that are not covered by
+	 * the boundaries as chained polylines
+	 *
+	 * @return number of polylines
+	 */
+	public int detectUncoveredEdges() {
+		return theme.detectUncoveredEdges(handler.covered);
+	}
+
+	/**
+	 * Get the topology edges that are covered by the boundaries
+	 *
+	 * @return set of covered edges, not a copy
+	 */
+	EdgeBitSet coverage() {
+		return handler.covered;
+	}
+
 	private static class InternalHandler implements HashingSegmentHandler {
-		private final Theme theme;
-		private final TopologyErrorCollector errorCollector;
+		private final Topology topology;
+		private final Topology.EdgeCursor cursor;
+		private TopologyErrorCollector errorCollector;
+		private final double tolerance;
+		private final EdgeBitSet covered;
 
-		private Topology.Node previousNode;
+		// Position at the previous node or 0
+		private int previousNode;
+		private double previousX;
+		private double previousY;
 
-		InternalHandler(final Theme theme, final TopologyErrorCollector errorCollector) {
-			this.theme = theme;
+		InternalHandler(final Theme theme, final TopologyErrorCollector errorCollector, final double tolerance) {
+			this.topology = theme.topology;
+			this.cursor = theme.topology.edgeCursor();
 			this.errorCollector = errorCollector;
+			this.tolerance = tolerance;
+			this.covered = theme.newEdgeBitSet();
+		}
+
+		/**
+		 * Move the cursor to the node of the point or to the nearest node within the tolerance
+		 */
+		private boolean moveToNode(final double x, final double y) {
+			if (cursor.moveToNode(x, y)) {
+				return true;
+			} else if (tolerance > 0) {
+				final Topology.Node node = topology.nearestNode(x, y, tolerance);
+				return node != null && cursor.moveToNode(node.x(), node.y());
+			}
+			return false;
 		}
 
 		@Override
 		public void coordinate2d(final double x, final double y, final long hash, final long location, final int type) {
-			if (previousNode == null) {
-				previousNode = theme.topology.node(x, y);
-				if (previousNode == null) {
+			if (previousNode != 0 && x == previousX && y == previousY) {
+				// Duplicate point, passed on by a fan-out parser
+				return;
+			}
+			if (!moveToNode(x, y)) {
+				if (tolerance > 0 && topology.nearestEdges(x, y, 1, tolerance).iterator().hasNext()) {
+					errorCollector.collectError(BOUNDARY_POINT_ON_EDGE,
+							x, y,
+							"IS", String.valueOf(location));
+				} else {
 					errorCollector.collectError(BOUNDARY_POINT_DETACHED,
 							x, y,
 							"IS", String.valueOf(location));
 				}
+				previousNode = 0;
 			} else {
-				final Topology.Node nextNode = theme.topology.node(x, y);
-				if (nextNode == null) {
-					errorCollector.collectError(BOUNDARY_POINT_DETACHED,
+				final int nextNode = cursor.index();
+				if (previousNode != 0 && !cursor.moveToEdge(previousNode, nextNode)) {
+					errorCollector.collectError(BOUNDARY_EDGE_INVALID,
 							x, y,
-							"IS", String.valueOf(location));
-					previousNode = null;
-				} else {
-					final Topology.Edge edge = previousNode.edge(nextNode);
-					if (edge == null) {
-						errorCollector.collectError(BOUNDARY_EDGE_INVALID,
-								x, y,
-								"IS", String.valueOf(location),
-								"X2", String.valueOf(previousNode.x()),
-								"Y2", String.valueOf(previousNode.y()));
-					}
-					previousNode = nextNode;
+							"IS", String.valueOf(location),
+							"X2", String.valueOf(previousX),
+							"Y2", String.valueOf(previousY));
+				} else if (previousNode != 0 && !covered.add(cursor.index())) {
+					errorCollector.collectError(BOUNDARY_OVERLAP,
+							x, y,
+							"IS", String.valueOf(location),
+							"X2", String.valueOf(previousX),
+							"Y2", String.valueOf(previousY));
 				}
+				previousNode = nextNode;
+				previousX = x;
+				previousY = y;
 			}
 		}
 
 		@Override
 		public void nextGeometricObject() {
-			previousNode = null;
+			previousNode = 0;
+		}
+
+		@Override
+		public void nextInterior() {
+			previousNode = 0;
 		}
 	}
 }
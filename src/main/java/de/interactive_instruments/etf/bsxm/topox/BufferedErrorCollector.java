@@ -0,0 +1,88 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gnu.trove.TDoubleArrayList;
+
+/**
+ * Keeps the errors of one thread in memory, until they are passed
+ * to the actual collector.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class BufferedErrorCollector implements TopologyErrorCollector {
+
+	private final List<TopologyErrorType> types = new ArrayList<>();
+	// NaN for errors without coordinates
+	private final TDoubleArrayList coordinates = new TDoubleArrayList();
+	private final List<String[]> parameters = new ArrayList<>();
+
+	@Override
+	public void init() {}
+
+	@Override
+	public void collectError(final TopologyErrorType topologyErrorType, final String... parameter) {
+		collectError(topologyErrorType, Double.NaN, Double.NaN, parameter);
+	}
+
+	@Override
+	public void collectError(final TopologyErrorType topologyErrorType, final double x, final double y,
+			final String... parameter) {
+		types.add(topologyErrorType);
+		coordinates.add(x);
+		coordinates.add(y);
+		parameters.add(parameter);
+	}
+
+	/**
+	 * Get the number of buffered errors
+	 *
+	 * @return number of errors
+	 */
+	int size() {
+		return types.size();
+	}
+
+	/**
+	 * Pass all buffered errors in the order of their occurrence to a collector
+	 * and clear the buffer
+	 *
+	 * @param errorCollector collector that receives the errors
+	 */
+	void flushTo(final TopologyErrorCollector errorCollector) {
+		for (int i = 0; i < types.size(); i++) {
+			final double x = coordinates.getQuick(i * 2);
+			if (Double.isNaN(x)) {
+				errorCollector.collectError(types.get(i), parameters.get(i));
+			} else {
+				errorCollector.collectError(types.get(i), x, coordinates.getQuick(i * 2 + 1), parameters.get(i));
+			}
+		}
+		types.clear();
+		coordinates.resetQuick();
+		parameters.clear();
+	}
+
+	@Override
+	public void release() {
+		types.clear();
+		coordinates.clear();
+		parameters.clear();
+	}
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.TOPOLOGY_FIELDS_SIZE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Runs several post-build checks in one traversal of the edges.
+ *
+ * The edge range is split into chunks, which are visited in a ForkJoinPool.
+ * Within a chunk, the checks are run one after another, so the topological
+ * data of the chunk is still cached when the next check visits it. Edge
+ * visitors are called for each edge, ring visitors for each ring of the face
+ * table at the first edge of the ring.
+ *
+ * The errors of each check and chunk are buffered and passed to the error
+ * collector in the order of the checks and chunks, so the output does not
+ * depend on the scheduling. The time spent in each check is summed up over
+ * all chunks and includes the preparation of the check, for example building
+ * the face table.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class CheckPipeline {
+
+	final static int DEFAULT_CHUNK_SIZE = 4096;
+
+	/**
+	 * A check that visits the chunks of the edge range
+	 */
+	interface Check {
+		/**
+		 * Called once before the chunks are visited, for example to build the data
+		 * the check reads. The time is added to the time of the check.
+		 */
+		default void init() {}
+
+		/**
+		 * Visit the edges of a chunk, may be called in parallel for different chunks
+		 *
+		 * @param chunk chunk
+		 * @param from first edge index of the chunk
+		 * @param to edge index after the chunk
+		 * @param errorCollector collector for the errors of the chunk
+		 */
+		void visit(final int chunk, final int from, final int to, final TopologyErrorCollector errorCollector);
+
+		/**
+		 * Called after all chunks have been visited and their errors have been collected
+		 *
+		 * @param errorCollector collector for further errors
+		 * @return number of further errors
+		 */
+		default int finish(final TopologyErrorCollector errorCollector) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Visits single edges
+	 */
+	interface EdgeVisitor {
+		/**
+		 * Called for each edge, may be called in parallel for different edges
+		 *
+		 * @param edgeIndex edge index
+		 * @param errorCollector collector for the errors of the edge
+		 */
+		void edge(final int edgeIndex, final TopologyErrorCollector errorCollector);
+	}
+
+	/**
+	 * Visits the rings of the face table
+	 */
+	interface RingVisitor {
+		/**
+		 * Called for each ring, may be called in parallel for different rings
+		 *
+		 * @param faces face table
+		 * @param ring ring
+		 * @param errorCollector collector for the errors of the ring
+		 */
+		void ring(final FaceTable faces, final int ring, final TopologyErrorCollector errorCollector);
+	}
+
+	private final TopologyBuilder builder;
+	private final Supplier<FaceTable> faceTableSupplier;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+	private final List<Check> checks = new ArrayList<>();
+	private FaceTable faces;
+
+	/**
+	 * Creates a new pipeline
+	 *
+	 * @param builder topology
+	 * @param faceTableSupplier face table of the topology, only requested when the pipeline
+	 *                             runs and a ring visitor has been added
+	 * @param pool pool the chunks are visited in
+	 * @param chunkSize number of edges per chunk
+	 */
+	CheckPipeline(final TopologyBuilder builder, final Supplier<FaceTable> faceTableSupplier, final ForkJoinPool pool,
+			final int chunkSize) {
+		this.builder = builder;
+		this.faceTableSupplier = faceTableSupplier;
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Get the number of chunks
+	 *
+	 * @return number of chunks
+	 */
+	int chunks() {
+		return (builder.internalTopologicalDataSize() / TOPOLOGY_FIELDS_SIZE + chunkSize - 1) / chunkSize;
+	}
+
+	void add(final Check check) {
+		checks.add(check);
+	}
+
+	void add(final EdgeVisitor visitor) {
+		checks.add((chunk, from, to, errorCollector) -> {
+			for (int e = Math.max(TOPOLOGY_FIELDS_SIZE, from); e < to; e += TOPOLOGY_FIELDS_SIZE) {
+				visitor.edge(e, errorCollector);
+			}
+		});
+	}
+
+	void add(final RingVisitor visitor) {
+		checks.add(new Check() {
+			@Override
+			public void init() {
+				if (faces == null) {
+					faces = faceTableSupplier.get();
+				}
+			}
+
+			@Override
+			public void visit(final int chunk, final int from, final int to,
+					final TopologyErrorCollector errorCollector) {
+				for (int e = Math.max(TOPOLOGY_FIELDS_SIZE, from); e < to; e += TOPOLOGY_FIELDS_SIZE) {
+					final int ring = faces.ring(e);
+					if (ring >= 0 && faces.firstEdge(ring) == e) {
+						visitor.ring(faces, ring, errorCollector);
+					}
+					final int reversedRing = faces.ring(-e);
+					if (reversedRing >= 0 && faces.firstEdge(reversedRing) == -e) {
+						visitor.ring(faces, reversedRing, errorCollector);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Run all checks
+	 *
+	 * @param errorCollector collector for the errors of all checks
+	 * @return number of errors and nanoseconds spent for each check, in the order the checks were added
+	 */
+	long[] run(final TopologyErrorCollector errorCollector) {
+		final int chunks = chunks();
+		final BufferedErrorCollector[][] buffers = new BufferedErrorCollector[chunks][checks.size()];
+		final AtomicLongArray nanos = new AtomicLongArray(checks.size());
+		for (int c = 0; c < checks.size(); c++) {
+			final long start = System.nanoTime();
+			checks.get(c).init();
+			nanos.set(c, System.nanoTime() - start);
+		}
+		if (chunks > 0) {
+			pool.invoke(new ChunkTask(buffers, nanos, 0, chunks));
+		}
+		final long[] result = new long[checks.size() * 2];
+		for (int c = 0; c < checks.size(); c++) {
+			final long start = System.nanoTime();
+			int count = 0;
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				count += buffers[chunk][c].size();
+				buffers[chunk][c].flushTo(errorCollector);
+			}
+			count += checks.get(c).finish(errorCollector);
+			result[c * 2] = count;
+			result[c * 2 + 1] = nanos.get(c) + System.nanoTime() - start;
+		}
+		return result;
+	}
+
+	private final class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BufferedErrorCollector[][] buffers;
+		private final AtomicLongArray nanos;
+		private final int fromChunk;
+		private final int toChunk;
+
+		private ChunkTask(final BufferedErrorCollector[][] buffers, final AtomicLongArray nanos, final int fromChunk,
+				final int toChunk) {
+			this.buffers = buffers;
+			this.nanos = nanos;
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (toChunk - fromChunk > 1) {
+				final int mid = (fromChunk + toChunk) >>> 1;
+				invokeAll(new ChunkTask(buffers, nanos, fromChunk, mid), new ChunkTask(buffers, nanos, mid, toChunk));
+			} else {
+				final int from = fromChunk * chunkSize * TOPOLOGY_FIELDS_SIZE;
+				final int to = Math.min(builder.internalTopologicalDataSize(),
+						(fromChunk + 1) * chunkSize * TOPOLOGY_FIELDS_SIZE);
+				for (int c = 0; c < checks.size(); c++) {
+					final BufferedErrorCollector buffer = new BufferedErrorCollector();
+					final long start = System.nanoTime();
+					checks.get(c).visit(fromChunk, from, to, buffer);
+					nanos.addAndGet(c, System.nanoTime() - start);
+					buffers[fromChunk][c] = buffer;
+				}
+			}
+		}
+	}
+}
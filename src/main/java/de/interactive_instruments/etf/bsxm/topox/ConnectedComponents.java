@@ -0,0 +1,192 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The connected components of a topology.
+ *
+ * The nodes are joined with a union-find structure over the node indices in
+ * one pass over all edges. The edge range is split into chunks that are joined
+ * in parallel: roots are always linked to the root with the lower index with a
+ * compare-and-set, so the structure stays consistent and each component ends up
+ * with its lowest node index as root, independent of the scheduling.
+ *
+ * The components are numbered in the order of their lowest node index.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class ConnectedComponents {
+
+	private final static int CHUNK_SIZE = 65_536;
+
+	private final TopologyBuilder builder;
+	// component of each node, indexed by coordinate index / 2
+	private final int[] nodeComponents;
+	private final int[] edgeCounts;
+	private final int[] representativeEdges;
+
+	private ConnectedComponents(final TopologyBuilder builder, final int[] nodeComponents, final int[] edgeCounts,
+			final int[] representativeEdges) {
+		this.builder = builder;
+		this.nodeComponents = nodeComponents;
+		this.edgeCounts = edgeCounts;
+		this.representativeEdges = representativeEdges;
+	}
+
+	/**
+	 * Find the connected components
+	 *
+	 * @param builder topology
+	 * @param pool pool used for joining the nodes of large topologies
+	 * @return components
+	 */
+	static ConnectedComponents build(final TopologyBuilder builder, final ForkJoinPool pool) {
+		final int nodes = builder.internalCoordinateSize() / 2;
+		final AtomicIntegerArray parents = new AtomicIntegerArray(nodes);
+		for (int i = 0; i < nodes; i++) {
+			parents.lazySet(i, i);
+		}
+		final int edges = builder.size() + 1;
+		final UnionTask task = new UnionTask(builder, parents, 1, edges);
+		if (edges > CHUNK_SIZE && pool.getParallelism() > 1) {
+			pool.invoke(task);
+		} else {
+			task.compute();
+		}
+
+		// Number the components by their root, which is the lowest node index.
+		// Node 0 is a placeholder.
+		final int[] nodeComponents = new int[nodes];
+		int count = 0;
+		for (int i = 1; i < nodes; i++) {
+			final int root = find(parents, i);
+			nodeComponents[i] = root == i ? count++ : nodeComponents[root];
+		}
+		final int[] edgeCounts = new int[count];
+		final int[] representativeEdges = new int[count];
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < builder.internalTopologicalDataSize(); e += TOPOLOGY_FIELDS_SIZE) {
+			final int component = nodeComponents[getLeft(builder.getTopologicalData(e + COORDINATE_OFFSET)) / 2];
+			if (edgeCounts[component]++ == 0) {
+				representativeEdges[component] = e;
+			}
+		}
+		return new ConnectedComponents(builder, nodeComponents, edgeCounts, representativeEdges);
+	}
+
+	private static int find(final AtomicIntegerArray parents, int node) {
+		int parent = parents.get(node);
+		while (parent != node) {
+			// path halving, a failed update is harmless
+			final int grandParent = parents.get(parent);
+			parents.compareAndSet(node, parent, grandParent);
+			node = grandParent;
+			parent = parents.get(node);
+		}
+		return node;
+	}
+
+	private static void union(final AtomicIntegerArray parents, final int a, final int b) {
+		while (true) {
+			final int rootA = find(parents, a);
+			final int rootB = find(parents, b);
+			if (rootA == rootB) {
+				return;
+			}
+			// link the higher root to the lower one, if it is still a root
+			final int high = Math.max(rootA, rootB);
+			if (parents.compareAndSet(high, high, Math.min(rootA, rootB))) {
+				return;
+			}
+		}
+	}
+
+	private final static class UnionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final TopologyBuilder builder;
+		private final AtomicIntegerArray parents;
+		// edge ordinals
+		private final int from;
+		private final int to;
+
+		private UnionTask(final TopologyBuilder builder, final AtomicIntegerArray parents, final int from,
+				final int to) {
+			this.builder = builder;
+			this.parents = parents;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > CHUNK_SIZE && getPool() != null) {
+				final int mid = (from + to) >>> 1;
+				invokeAll(new UnionTask(builder, parents, from, mid), new UnionTask(builder, parents, mid, to));
+			} else {
+				for (int e = from * TOPOLOGY_FIELDS_SIZE; e < to * TOPOLOGY_FIELDS_SIZE; e += TOPOLOGY_FIELDS_SIZE) {
+					final long coordinateIndices = builder.getTopologicalData(e + COORDINATE_OFFSET);
+					union(parents, getLeft(coordinateIndices) / 2, getRight(coordinateIndices) / 2);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the number of components
+	 *
+	 * @return number of components
+	 */
+	int size() {
+		return edgeCounts.length;
+	}
+
+	/**
+	 * Get the component of an edge
+	 *
+	 * @param edgeIndex edge index
+	 * @return component
+	 */
+	int component(final int edgeIndex) {
+		return nodeComponents[builder.getLeftOrRightByIndex(edgeIndex, COORDINATE_OFFSET) / 2];
+	}
+
+	/**
+	 * Get the number of edges in a component
+	 *
+	 * @param component component
+	 * @return number of edges
+	 */
+	int edgeCount(final int component) {
+		return edgeCounts[component];
+	}
+
+	/**
+	 * Get the edge with the lowest index in a component
+	 *
+	 * @param component component
+	 * @return edge index or 0 if the component has no edges
+	 */
+	int representativeEdge(final int component) {
+		return representativeEdges[component];
+	}
+}
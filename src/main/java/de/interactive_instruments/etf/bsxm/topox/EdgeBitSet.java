@@ -0,0 +1,97 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.TOPOLOGY_FIELDS_SIZE;
+
+import java.util.Arrays;
+
+/**
+ * A compact set of edges with one bit per edge.
+ *
+ * Edges are addressed by their (signed) edge index, both directions
+ * of an edge share the same bit. The set grows if edges are added
+ * that have been added to the topology after the set was created.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class EdgeBitSet {
+
+	private long[] words;
+
+	/**
+	 * Creates a new set
+	 *
+	 * @param edges number of edges
+	 */
+	EdgeBitSet(final int edges) {
+		this.words = new long[((edges + 1) >> 6) + 1];
+	}
+
+	private static int bit(final int edgeIndex) {
+		return Math.abs(edgeIndex) / TOPOLOGY_FIELDS_SIZE;
+	}
+
+	boolean get(final int edgeIndex) {
+		final int bit = bit(edgeIndex);
+		return (bit >> 6) < words.length && (words[bit >> 6] & (1L << bit)) != 0;
+	}
+
+	void set(final int edgeIndex) {
+		final int bit = bit(edgeIndex);
+		ensureCapacity(bit >> 6);
+		words[bit >> 6] |= 1L << bit;
+	}
+
+	/**
+	 * Grow the set if edges have been added to the topology after it was created
+	 */
+	private void ensureCapacity(final int word) {
+		if (word >= words.length) {
+			words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+		}
+	}
+
+	/**
+	 * Set the bit of an edge
+	 *
+	 * @return false if the bit has already been set
+	 */
+	boolean add(final int edgeIndex) {
+		final int bit = bit(edgeIndex);
+		ensureCapacity(bit >> 6);
+		final long mask = 1L << bit;
+		final long word = words[bit >> 6];
+		if ((word & mask) != 0) {
+			return false;
+		}
+		words[bit >> 6] = word | mask;
+		return true;
+	}
+
+	/**
+	 * Get the number of set bits
+	 *
+	 * @return number of edges in the set
+	 */
+	int cardinality() {
+		int count = 0;
+		for (final long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+}
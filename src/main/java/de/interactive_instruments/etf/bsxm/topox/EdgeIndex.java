@@ -0,0 +1,490 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+
+import java.util.Arrays;
+
+import gnu.trove.TIntArrayList;
+
+/**
+ * A static, packed Hilbert R-tree over the envelopes of items.
+ *
+ * The items are sorted by the Hilbert value of their envelope centers and
+ * packed bottom-up into nodes with a fixed number of children. All nodes are
+ * stored in flat arrays: four doubles for each envelope (min X, min Y, max X,
+ * max Y) and one int for each node, which is the item ID for leaf entries or
+ * the position of the first child for inner nodes. The leaf entries come first,
+ * the root node is the last one.
+ *
+ * The index can not be modified after {@link #finish()} has been called.
+ *
+ * Positions in the flat arrays are int values, so the boxes of all nodes must
+ * fit into one array with at most {@link #MAX_BOXES_LENGTH} values. With the default
+ * node size this limits the index to about 503 million items, which is more than a
+ * topology can hold (Integer.MAX_VALUE / TOPOLOGY_FIELDS_SIZE edges).
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class EdgeIndex {
+
+	/**
+	 * Calculates the exact distance between an item and a point
+	 */
+	interface ItemDistance {
+
+		/**
+		 * Get the squared distance
+		 *
+		 * @param item item ID
+		 * @param x X coordinate
+		 * @param y Y coordinate
+		 * @return squared distance
+		 */
+		double distanceSq(final int item, final double x, final double y);
+	}
+
+	final static int DEFAULT_NODE_SIZE = 16;
+
+	// Maximum length of the boxes array
+	final static long MAX_BOXES_LENGTH = Integer.MAX_VALUE - 8;
+
+	private final int numItems;
+	private final int nodeSize;
+	private final int[] levelBounds;
+	private final double[] boxes;
+	private final int[] indices;
+	private int pos;
+
+	// Envelope of all items
+	private double minX = Double.POSITIVE_INFINITY;
+	private double minY = Double.POSITIVE_INFINITY;
+	private double maxX = Double.NEGATIVE_INFINITY;
+	private double maxY = Double.NEGATIVE_INFINITY;
+
+	EdgeIndex(final int numItems, final int nodeSize) {
+		this.numItems = numItems;
+		this.nodeSize = Math.max(2, nodeSize);
+
+		// calculate the total number of nodes and the bounds of the levels
+		int n = numItems;
+		long numNodes = Math.max(1, n);
+		final TIntArrayList bounds = new TIntArrayList();
+		bounds.add(boxesLength(numNodes, numItems));
+		do {
+			n = (n + this.nodeSize - 1) / this.nodeSize;
+			numNodes += n;
+			bounds.add(boxesLength(numNodes, numItems));
+		} while (n > 1);
+		this.levelBounds = bounds.toNativeArray();
+		this.boxes = new double[(int) numNodes * 4];
+		this.indices = new int[(int) numNodes];
+	}
+
+	/**
+	 * Get the length of the boxes array for a number of nodes
+	 *
+	 * @throws IllegalArgumentException if the length exceeds {@link #MAX_BOXES_LENGTH}
+	 */
+	private static int boxesLength(final long numNodes, final int numItems) {
+		if (numNodes * 4 > MAX_BOXES_LENGTH) {
+			throw new IllegalArgumentException("Too many items for the index: " + numItems
+					+ ". The boxes of " + numNodes + " nodes exceed the maximum array length.");
+		}
+		return (int) (numNodes * 4);
+	}
+
+	/**
+	 * Build an index over all edges of a topology
+	 *
+	 * @param builder topology
+	 * @return finished index, with the edge indices as item IDs
+	 */
+	static EdgeIndex build(final TopologyBuilder builder) {
+		final EdgeIndex index = new EdgeIndex(builder.size(), DEFAULT_NODE_SIZE);
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < builder.internalTopologicalDataSize(); e += TOPOLOGY_FIELDS_SIZE) {
+			final long coordinateIndices = builder.getTopologicalData(e + COORDINATE_OFFSET);
+			final int source = getLeft(coordinateIndices);
+			final int target = getRight(coordinateIndices);
+			final double x1 = builder.getCoordinate(source);
+			final double y1 = builder.getCoordinate(source + 1);
+			final double x2 = builder.getCoordinate(target);
+			final double y2 = builder.getCoordinate(target + 1);
+			index.add(e, Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+		}
+		index.finish();
+		return index;
+	}
+
+	/**
+	 * Add an item
+	 *
+	 * @param id item ID
+	 */
+	void add(final int id, final double minX, final double minY, final double maxX, final double maxY) {
+		indices[pos >> 2] = id;
+		boxes[pos++] = minX;
+		boxes[pos++] = minY;
+		boxes[pos++] = maxX;
+		boxes[pos++] = maxY;
+		this.minX = Math.min(this.minX, minX);
+		this.minY = Math.min(this.minY, minY);
+		this.maxX = Math.max(this.maxX, maxX);
+		this.maxY = Math.max(this.maxY, maxY);
+	}
+
+	/**
+	 * Sort the items and build the inner nodes
+	 */
+	void finish() {
+		if (pos >> 2 != numItems) {
+			throw new IllegalStateException("Added " + (pos >> 2) + " items instead of " + numItems);
+		}
+		if (numItems <= nodeSize) {
+			// only one node, the root node
+			indices[pos >> 2] = 0;
+			boxes[pos++] = minX;
+			boxes[pos++] = minY;
+			boxes[pos++] = maxX;
+			boxes[pos++] = maxY;
+			return;
+		}
+
+		// sort the items by the Hilbert value of their centers, the item position
+		// is stored in the lower 31 bits
+		final double width = maxX - minX;
+		final double height = maxY - minY;
+		final int hilbertMax = (1 << 16) - 1;
+		final long[] hilbertValues = new long[numItems];
+		for (int i = 0, p = 0; i < numItems; i++, p += 4) {
+			final int x = width > 0 ? (int) (hilbertMax * ((boxes[p] + boxes[p + 2]) / 2 - minX) / width) : 0;
+			final int y = height > 0 ? (int) (hilbertMax * ((boxes[p + 1] + boxes[p + 3]) / 2 - minY) / height) : 0;
+			hilbertValues[i] = (hilbert(x, y) << 31) | i;
+		}
+		Arrays.parallelSort(hilbertValues);
+		final double[] sortedBoxes = new double[numItems * 4];
+		final int[] sortedIndices = new int[numItems];
+		for (int i = 0, p = 0; i < numItems; i++, p += 4) {
+			final int from = (int) (hilbertValues[i] & Integer.MAX_VALUE);
+			System.arraycopy(boxes, from * 4, sortedBoxes, p, 4);
+			sortedIndices[i] = indices[from];
+		}
+		System.arraycopy(sortedBoxes, 0, boxes, 0, sortedBoxes.length);
+		System.arraycopy(sortedIndices, 0, indices, 0, sortedIndices.length);
+
+		// generate the nodes level by level
+		for (int l = 0, p = 0; l < levelBounds.length - 1; l++) {
+			final int end = levelBounds[l];
+			while (p < end) {
+				final int nodeIndex = p;
+				double nodeMinX = Double.POSITIVE_INFINITY;
+				double nodeMinY = Double.POSITIVE_INFINITY;
+				double nodeMaxX = Double.NEGATIVE_INFINITY;
+				double nodeMaxY = Double.NEGATIVE_INFINITY;
+				for (int i = 0; i < nodeSize && p < end; i++) {
+					nodeMinX = Math.min(nodeMinX, boxes[p++]);
+					nodeMinY = Math.min(nodeMinY, boxes[p++]);
+					nodeMaxX = Math.max(nodeMaxX, boxes[p++]);
+					nodeMaxY = Math.max(nodeMaxY, boxes[p++]);
+				}
+				indices[pos >> 2] = nodeIndex;
+				boxes[pos++] = nodeMinX;
+				boxes[pos++] = nodeMinY;
+				boxes[pos++] = nodeMaxX;
+				boxes[pos++] = nodeMaxY;
+			}
+		}
+	}
+
+	int size() {
+		return numItems;
+	}
+
+	/**
+	 * Get the envelope of all items
+	 *
+	 * @return min X, min Y, max X, max Y
+	 */
+	double[] envelope() {
+		return new double[]{minX, minY, maxX, maxY};
+	}
+
+	/**
+	 * Find all items whose envelopes intersect a window
+	 *
+	 * @param result list the IDs of the found items are added to
+	 */
+	void search(final double minX, final double minY, final double maxX, final double maxY,
+			final TIntArrayList result) {
+		search(minX, minY, maxX, maxY, result, new TIntArrayList());
+	}
+
+	/**
+	 * Find all items whose envelopes intersect a window, with a reusable queue
+	 * for repeated searches
+	 *
+	 * @param result list the IDs of the found items are added to
+	 * @param queue empty list for the nodes to visit
+	 */
+	void search(final double minX, final double minY, final double maxX, final double maxY,
+			final TIntArrayList result, final TIntArrayList queue) {
+		if (numItems == 0) {
+			return;
+		}
+		int nodeIndex = boxes.length - 4;
+		while (true) {
+			// find the end index of the node
+			final int end = Math.min(nodeIndex + nodeSize * 4, upperBound(nodeIndex));
+			for (int p = nodeIndex; p < end; p += 4) {
+				if (maxX < boxes[p] || maxY < boxes[p + 1] || minX > boxes[p + 2] || minY > boxes[p + 3]) {
+					continue;
+				}
+				if (nodeIndex < numItems * 4) {
+					result.add(indices[p >> 2]);
+				} else {
+					queue.add(indices[p >> 2]);
+				}
+			}
+			if (queue.isEmpty()) {
+				return;
+			}
+			nodeIndex = queue.remove(queue.size() - 1);
+		}
+	}
+
+	/**
+	 * Find the nearest items ordered by their distance
+	 *
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @param maxResults maximum number of items to return
+	 * @param maxDistance maximum distance of the items
+	 * @param itemDistance used to calculate the exact distance of an item
+	 * @param result list the IDs of the found items are added to
+	 */
+	void nearest(final double x, final double y, final int maxResults, final double maxDistance,
+			final ItemDistance itemDistance, final TIntArrayList result) {
+		if (numItems == 0 || maxResults <= 0) {
+			return;
+		}
+		final double maxDistanceSq = maxDistance * maxDistance;
+		final PriorityQueue q = new PriorityQueue();
+		int nodeIndex = boxes.length - 4;
+		int found = 0;
+		while (true) {
+			final int end = Math.min(nodeIndex + nodeSize * 4, upperBound(nodeIndex));
+			for (int p = nodeIndex; p < end; p += 4) {
+				final int index = indices[p >> 2];
+				if (nodeIndex < numItems * 4) {
+					// leaf entry: use the exact distance, the lowest bit marks an item
+					final double distance = itemDistance.distanceSq(index, x, y);
+					if (distance <= maxDistanceSq) {
+						q.push(p + 1, distance);
+					}
+				} else {
+					final double distance = boxDistanceSq(p, x, y);
+					if (distance <= maxDistanceSq) {
+						q.push(index, distance);
+					}
+				}
+			}
+			while (!q.isEmpty() && (q.peek() & 1) == 1) {
+				result.add(indices[q.pop() >> 2]);
+				if (++found == maxResults) {
+					return;
+				}
+			}
+			if (q.isEmpty()) {
+				return;
+			}
+			nodeIndex = q.pop();
+		}
+	}
+
+	private double boxDistanceSq(final int p, final double x, final double y) {
+		final double dx = axisDistance(x, boxes[p], boxes[p + 2]);
+		final double dy = axisDistance(y, boxes[p + 1], boxes[p + 3]);
+		return dx * dx + dy * dy;
+	}
+
+	private static double axisDistance(final double k, final double min, final double max) {
+		return k < min ? min - k : k <= max ? 0 : k - max;
+	}
+
+	/**
+	 * Get the squared distance between a point and a line segment
+	 */
+	static double segmentDistanceSq(final double x, final double y, final double x1, final double y1,
+			final double x2, final double y2) {
+		final double dx = x2 - x1;
+		final double dy = y2 - y1;
+		double px = x1;
+		double py = y1;
+		if (dx != 0 || dy != 0) {
+			final double t = ((x - x1) * dx + (y - y1) * dy) / (dx * dx + dy * dy);
+			if (t > 1) {
+				px = x2;
+				py = y2;
+			} else if (t > 0) {
+				px += dx * t;
+				py += dy * t;
+			}
+		}
+		final double ex = x - px;
+		final double ey = y - py;
+		return ex * ex + ey * ey;
+	}
+
+	/**
+	 * Binary search for the first level bound that is greater than the node index
+	 */
+	private int upperBound(final int nodeIndex) {
+		int i = 0;
+		int j = levelBounds.length - 1;
+		while (i < j) {
+			final int m = (i + j) >> 1;
+			if (levelBounds[m] > nodeIndex) {
+				j = m;
+			} else {
+				i = m + 1;
+			}
+		}
+		return levelBounds[i];
+	}
+
+	/**
+	 * Binary min-heap with primitive values
+	 */
+	private final static class PriorityQueue {
+		private int[] ids = new int[64];
+		private double[] values = new double[64];
+		private int length;
+
+		void push(final int id, final double value) {
+			if (length == ids.length) {
+				ids = Arrays.copyOf(ids, length * 2);
+				values = Arrays.copyOf(values, length * 2);
+			}
+			int pos = length++;
+			while (pos > 0) {
+				final int parent = (pos - 1) >> 1;
+				if (value >= values[parent]) {
+					break;
+				}
+				ids[pos] = ids[parent];
+				values[pos] = values[parent];
+				pos = parent;
+			}
+			ids[pos] = id;
+			values[pos] = value;
+		}
+
+		int pop() {
+			final int top = ids[0];
+			if (--length > 0) {
+				final int id = ids[length];
+				final double value = values[length];
+				int pos = 0;
+				final int halfLength = length >> 1;
+				while (pos < halfLength) {
+					int left = (pos << 1) + 1;
+					final int right = left + 1;
+					if (right < length && values[right] < values[left]) {
+						left = right;
+					}
+					if (values[left] >= value) {
+						break;
+					}
+					ids[pos] = ids[left];
+					values[pos] = values[left];
+					pos = left;
+				}
+				ids[pos] = id;
+				values[pos] = value;
+			}
+			return top;
+		}
+
+		int peek() {
+			return ids[0];
+		}
+
+		boolean isEmpty() {
+			return length == 0;
+		}
+	}
+
+	/**
+	 * Calculates the Hilbert value of a 16 bit coordinate pair
+	 *
+	 * Based on the public domain 'Fast Hilbert curve generation' by rawrunprotected.
+	 */
+	private static long hilbert(final int x, final int y) {
+		int a = x ^ y;
+		int b = 0xFFFF ^ a;
+		int c = 0xFFFF ^ (x | y);
+		int d = x & (y ^ 0xFFFF);
+
+		int A = a | (b >> 1);
+		int B = (a >> 1) ^ a;
+		int C = ((c >> 1) ^ (b & (d >> 1))) ^ c;
+		int D = ((a & (c >> 1)) ^ (d >> 1)) ^ d;
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		A = ((a & (a >> 2)) ^ (b & (b >> 2)));
+		B = ((a & (b >> 2)) ^ (b & ((a ^ b) >> 2)));
+		C ^= ((a & (c >> 2)) ^ (b & (d >> 2)));
+		D ^= ((b & (c >> 2)) ^ ((a ^ b) & (d >> 2)));
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		A = ((a & (a >> 4)) ^ (b & (b >> 4)));
+		B = ((a & (b >> 4)) ^ (b & ((a ^ b) >> 4)));
+		C ^= ((a & (c >> 4)) ^ (b & (d >> 4)));
+		D ^= ((b & (c >> 4)) ^ ((a ^ b) & (d >> 4)));
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		C ^= ((a & (c >> 8)) ^ (b & (d >> 8)));
+		D ^= ((b & (c >> 8)) ^ ((a ^ b) & (d >> 8)));
+
+		a = C ^ (C >> 1);
+		b = D ^ (D >> 1);
+
+		int i0 = x ^ y;
+		int i1 = b | (0xFFFF ^ (i0 | a));
+
+		i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+		i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+		i0 = (i0 | (i0 << 2)) & 0x33333333;
+		i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+		i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+		i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+		i1 = (i1 | (i1 << 2)) & 0x33333333;
+		i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+		return ((i1 << 1) | i0) & 0xFFFFFFFFL;
+	}
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+
+import gnu.trove.TDoubleArrayList;
+import gnu.trove.TIntArrayList;
+import gnu.trove.TLongArrayList;
+
+/**
+ * The face rings of a topology, stored in primitive columns.
+ *
+ * Each edge is passed by two rings, one in each direction. A ring is walked
+ * like in the hole detection: starting with an edge, the next edge is the
+ * counter clockwise next edge at the target node. The ring of an edge lies on
+ * the right side of the edge, the ring of the reversed edge on the left side.
+ *
+ * For each ring the first edge, the number of edges, the signed area (shoelace
+ * formula, in the order of the walk), the envelope and the object on the
+ * ring side of the first edge are stored.
+ *
+ * The table is a snapshot and does not change if the topology is extended.
+ * Large topologies are walked with multiple threads, see
+ * {@link ParallelFaceScanner#faceTable()}.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class FaceTable {
+
+	private final int[] firstEdges;
+	private final int[] edgeCounts;
+	private final double[] areas;
+	// min X, min Y, max X, max Y
+	private final double[] envelopes;
+	private final int[] objectIds;
+	private final long[] objects;
+	// ring of each edge direction, at 2 * (edge index / TOPOLOGY_FIELDS_SIZE), +1 for the reversed edge
+	private final int[] rings;
+
+	FaceTable(final int[] firstEdges, final int[] edgeCounts, final double[] areas, final double[] envelopes,
+			final int[] objectIds, final long[] objects, final int[] rings) {
+		this.firstEdges = firstEdges;
+		this.edgeCounts = edgeCounts;
+		this.areas = areas;
+		this.envelopes = envelopes;
+		this.objectIds = objectIds;
+		this.objects = objects;
+		this.rings = rings;
+	}
+
+	static int slot(final int edgeIndex) {
+		return (Math.abs(edgeIndex) / TOPOLOGY_FIELDS_SIZE) * 2 + (edgeIndex < 0 ? 1 : 0);
+	}
+
+	/**
+	 * Walks one ring and sums up its columns
+	 */
+	static final class RingWalk {
+		int count;
+		double area;
+		double minX;
+		double minY;
+		double maxX;
+		double maxY;
+		int objectId;
+		long object;
+
+		/**
+		 * Walk a ring and mark its edge directions
+		 *
+		 * @param builder topology
+		 * @param first first edge of the ring
+		 * @param mark ring + 1, written to the slots of the edge directions
+		 * @param rings slots of the edge directions, 0 marks an unvisited edge direction
+		 */
+		void walk(final TopologyBuilder builder, final int first, final int mark, final int[] rings) {
+			count = 0;
+			area = 0;
+			minX = Double.POSITIVE_INFINITY;
+			minY = Double.POSITIVE_INFINITY;
+			maxX = Double.NEGATIVE_INFINITY;
+			maxY = Double.NEGATIVE_INFINITY;
+			int current = first;
+			// the coordinates are shifted to the first node to reduce cancellation
+			final int origin = builder.getLeftOrRightByIndex(first, COORDINATE_OFFSET);
+			final double x0 = builder.getCoordinate(origin);
+			final double y0 = builder.getCoordinate(origin + 1);
+			do {
+				rings[slot(current)] = mark;
+				count++;
+				final int source = builder.getLeftOrRightByIndex(current, COORDINATE_OFFSET);
+				final int target = builder.getLeftOrRightByIndex(-current, COORDINATE_OFFSET);
+				final double x1 = builder.getCoordinate(source);
+				final double y1 = builder.getCoordinate(source + 1);
+				final double x2 = builder.getCoordinate(target);
+				final double y2 = builder.getCoordinate(target + 1);
+				area += (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+				minX = Math.min(minX, x1);
+				minY = Math.min(minY, y1);
+				maxX = Math.max(maxX, x1);
+				maxY = Math.max(maxY, y1);
+				current = builder.getLeftOrRightByIndex(-current, CCWI_OFFSET);
+				// stops at the first edge or, if the ring is broken, at any other visited edge
+			} while (current != 0 && rings[slot(current)] == 0);
+			area /= 2;
+			objectId = builder.getLeftOrRightByIndex(-first, OBJ_OFFSET);
+			object = builder.getTopologicalData(
+					Math.abs(first) + (first > 0 ? RIGHT_LOCATION_INDEX : LEFT_LOCATION_INDEX));
+		}
+	}
+
+	/**
+	 * Walk all rings of the topology
+	 *
+	 * @param builder topology
+	 * @return new table
+	 */
+	static FaceTable build(final TopologyBuilder builder) {
+		final int size = builder.internalTopologicalDataSize();
+		final int[] rings = new int[(size / TOPOLOGY_FIELDS_SIZE) * 2];
+		final TIntArrayList firstEdges = new TIntArrayList();
+		final TIntArrayList edgeCounts = new TIntArrayList();
+		final TDoubleArrayList areas = new TDoubleArrayList();
+		final TDoubleArrayList envelopes = new TDoubleArrayList();
+		final TIntArrayList objectIds = new TIntArrayList();
+		final TLongArrayList objects = new TLongArrayList();
+
+		// 0 marks an unvisited edge direction, rings are stored 1-based during the walk
+		final RingWalk walk = new RingWalk();
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < size; e += TOPOLOGY_FIELDS_SIZE) {
+			for (int direction = 0; direction < 2; direction++) {
+				final int first = direction == 0 ? e : -e;
+				if (rings[slot(first)] != 0) {
+					continue;
+				}
+				walk.walk(builder, first, firstEdges.size() + 1, rings);
+				firstEdges.add(first);
+				edgeCounts.add(walk.count);
+				areas.add(walk.area);
+				envelopes.add(walk.minX);
+				envelopes.add(walk.minY);
+				envelopes.add(walk.maxX);
+				envelopes.add(walk.maxY);
+				objectIds.add(walk.objectId);
+				objects.add(walk.object);
+			}
+		}
+		for (int i = 0; i < rings.length; i++) {
+			rings[i]--;
+		}
+		return new FaceTable(firstEdges.toNativeArray(), edgeCounts.toNativeArray(), areas.toNativeArray(),
+				envelopes.toNativeArray(), objectIds.toNativeArray(), objects.toNativeArray(), rings);
+	}
+
+	/**
+	 * Get the number of rings
+	 *
+	 * @return number of rings
+	 */
+	int size() {
+		return firstEdges.length;
+	}
+
+	/**
+	 * Get the ring on the right side of an edge
+	 *
+	 * @param edgeIndex signed edge index
+	 * @return ring or -1 if the edge does not exist
+	 */
+	int ring(final int edgeIndex) {
+		final int slot = slot(edgeIndex);
+		return slot < rings.length ? rings[slot] : -1;
+	}
+
+	int firstEdge(final int ring) {
+		return firstEdges[ring];
+	}
+
+	int edgeCount(final int ring) {
+		return edgeCounts[ring];
+	}
+
+	/**
+	 * Get the signed area of the ring, rings that are walked counter clockwise
+	 * have a positive area
+	 *
+	 * @param ring ring
+	 * @return signed area
+	 */
+	double area(final int ring) {
+		return areas[ring];
+	}
+
+	double minX(final int ring) {
+		return envelopes[ring * 4];
+	}
+
+	double minY(final int ring) {
+		return envelopes[ring * 4 + 1];
+	}
+
+	double maxX(final int ring) {
+		return envelopes[ring * 4 + 2];
+	}
+
+	double maxY(final int ring) {
+		return envelopes[ring * 4 + 3];
+	}
+
+	/**
+	 * Get the internal object ID on the ring side of the first edge
+	 *
+	 * @param ring ring
+	 * @return internal object ID, negative for interiors, 0 if there is no object
+	 */
+	int objectId(final int ring) {
+		return objectIds[ring];
+	}
+
+	/**
+	 * Get the object location on the ring side of the first edge
+	 *
+	 * @param ring ring
+	 * @return compressed location or 0 if there is no object
+	 */
+	long object(final int ring) {
+		return objects[ring];
+	}
+}
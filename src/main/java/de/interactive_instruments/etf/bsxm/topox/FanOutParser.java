@@ -0,0 +1,174 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses each posList only once and passes the coordinates to multiple
+ * Themes and Boundary Builders.
+ *
+ * The sinks that receive the coordinates of the next Feature are
+ * selected with a bit mask, where bit i stands for the i-th added sink.
+ *
+ * The topology of a Boundary Builder must have been built before, so a
+ * Boundary Builder and its own Theme cannot be sinks of the same parser.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class FanOutParser {
+
+	public final static int MAX_SINKS = 64;
+	public final static long ALL_SINKS = -1L;
+
+	public final PosListParser parser;
+	private final FanOutHandler handler;
+	private final List<Theme> themes = new ArrayList<>();
+	// Themes of the Boundary Builders
+	private final List<Theme> boundaryThemes = new ArrayList<>();
+
+	public FanOutParser() {
+		this.handler = new FanOutHandler();
+		this.parser = new HashingPosListParser(handler);
+	}
+
+	/**
+	 * Add a Theme as sink
+	 *
+	 * @param theme Theme
+	 * @return index of the sink
+	 * @throws IllegalArgumentException if a Boundary Builder of the Theme is a sink
+	 */
+	public int addSink(final Theme theme) {
+		if (boundaryThemes.contains(theme)) {
+			throw new IllegalArgumentException(
+					"Theme '" + theme.name + "' is checked by a Boundary Builder of the same parser");
+		}
+		final int index = handler.add(theme.segmentHandler());
+		themes.add(theme);
+		return index;
+	}
+
+	/**
+	 * Add a Boundary Builder as sink
+	 *
+	 * @param boundaryBuilder Boundary Builder
+	 * @return index of the sink
+	 * @throws IllegalArgumentException if the Theme of the Boundary Builder is a sink
+	 */
+	public int addSink(final BoundaryBuilder boundaryBuilder) {
+		if (themes.contains(boundaryBuilder.theme())) {
+			throw new IllegalArgumentException(
+					"Theme '" + boundaryBuilder.theme().name + "' is checked by a Boundary Builder of the same parser");
+		}
+		final int index = handler.add(boundaryBuilder.handler());
+		boundaryThemes.add(boundaryBuilder.theme());
+		return index;
+	}
+
+	/**
+	 * Select the sinks for the next geometric objects
+	 *
+	 * @param mask bit i set to 1 selects the i-th added sink
+	 */
+	public void select(final long mask) {
+		handler.select(mask);
+	}
+
+	public void nextInterior() {
+		handler.nextInterior();
+	}
+
+	/**
+	 * Wait until the topologies of all Themes have been built
+	 */
+	public void sync() {
+		for (final Theme theme : themes) {
+			theme.sync();
+		}
+	}
+
+	private static class FanOutHandler implements HashingSegmentHandler {
+
+		private HashingSegmentHandler[] sinks = new HashingSegmentHandler[0];
+
+		// Currently selected sinks
+		private HashingSegmentHandler[] active = sinks;
+		private int activeSize;
+
+		private int add(final HashingSegmentHandler sink) {
+			if (sinks.length == MAX_SINKS) {
+				throw new IllegalArgumentException("Maximum number of sinks exceeded: " + MAX_SINKS);
+			}
+			sinks = Arrays.copyOf(sinks, sinks.length + 1);
+			sinks[sinks.length - 1] = sink;
+			active = new HashingSegmentHandler[sinks.length];
+			select(ALL_SINKS);
+			return sinks.length - 1;
+		}
+
+		private void select(final long mask) {
+			activeSize = 0;
+			for (int i = 0; i < sinks.length; i++) {
+				if ((mask & (1L << i)) != 0) {
+					active[activeSize++] = sinks[i];
+				}
+			}
+		}
+
+		@Override
+		public void coordinate2d(final double x, final double y, final long hash, final long location, final int type) {
+			for (int i = 0; i < activeSize; i++) {
+				active[i].coordinate2d(x, y, hash, location, type);
+			}
+		}
+
+		@Override
+		public void coordinates2d(final double[] coordinates, final long[] hashes, final int size, final long location,
+				final int type) {
+			for (int i = 0; i < activeSize; i++) {
+				active[i].coordinates2d(coordinates, hashes, size, location, type);
+			}
+		}
+
+		@Override
+		public void nextGeometricObject() {
+			for (int i = 0; i < activeSize; i++) {
+				active[i].nextGeometricObject();
+			}
+		}
+
+		@Override
+		public boolean acceptsDuplicatePoints() {
+			// Sinks that do not report duplicate points skip them themselves
+			for (final HashingSegmentHandler sink : sinks) {
+				if (sink.acceptsDuplicatePoints()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void nextInterior() {
+			for (int i = 0; i < activeSize; i++) {
+				active[i].nextInterior();
+			}
+		}
+	}
+}
@@ -31,6 +31,12 @@ class HashingPosListParser implements PosListParser {
 
 	private final HashingSegmentHandler[] geoTypeHandlerStrategies;
 
+	// Number of coordinate tuples that are passed to a handler at once
+	private final static int BATCH_SIZE = 512;
+	private final double[] coordinateBatch = new double[BATCH_SIZE * 2];
+	private final long[] hashBatch = new long[BATCH_SIZE];
+	private int batchSize;
+
 	// more than enough for lat/lon
 	private final static int PRECALC_POW_SIZE = 12;
 	private final static double[] PRECALC_POS_EXPS = new double[PRECALC_POW_SIZE];
@@ -100,7 +106,7 @@ class HashingPosListParser implements PosListParser {
 
 		@Override
 		public void coordinate2d(final double x, final double y, final long hash, final long location, final int type) {
-			if (hash != previousCoordinateHash) {
+			if (hash != previousCoordinateHash || handler.acceptsDuplicatePoints()) {
 				handler.coordinate2d(x, y, hash, location, type);
 				previousCoordinateHash = hash;
 			}
@@ -111,6 +117,37 @@ class HashingPosListParser implements PosListParser {
 			throw new IllegalAccessError("Invalid call");
 		}
 
+		@Override
+		public void coordinates2d(final double[] coordinates, final long[] hashes, final int size, final long location,
+				final int type) {
+			if (handler.acceptsDuplicatePoints()) {
+				if (size > 0) {
+					previousCoordinateHash = hashes[size - 1];
+					handler.coordinates2d(coordinates, hashes, size, location, type);
+				}
+				return;
+			}
+			// Drop consecutive duplicates by compacting the batch in place
+			long previous = previousCoordinateHash;
+			int filtered = 0;
+			for (int i = 0; i < size; i++) {
+				final long hash = hashes[i];
+				if (hash != previous) {
+					if (filtered != i) {
+						coordinates[filtered * 2] = coordinates[i * 2];
+						coordinates[filtered * 2 + 1] = coordinates[i * 2 + 1];
+						hashes[filtered] = hash;
+					}
+					++filtered;
+					previous = hash;
+				}
+			}
+			previousCoordinateHash = previous;
+			if (filtered > 0) {
+				handler.coordinates2d(coordinates, hashes, filtered, location, type);
+			}
+		}
+
 		@Override
 		public void nextGeometricObject() {
 			previousCoordinateHash = Long.MAX_VALUE;
@@ -209,6 +246,7 @@ class HashingPosListParser implements PosListParser {
 				// continue;
 
 				// TODO error collector
+				flushBatch(segmentHandler, location, geoType);
 				throw new NumberFormatException("Invalid Double : " + new String(bytes));
 			}
 
@@ -220,13 +258,19 @@ class HashingPosListParser implements PosListParser {
 			}
 
 			if (++ordinateCounter % 2 == 0) {
-				segmentHandler.coordinate2d(previousOrdinate, positiveSign ? number : -number, hash, location, geoType);
+				coordinateBatch[batchSize * 2] = previousOrdinate;
+				coordinateBatch[batchSize * 2 + 1] = positiveSign ? number : -number;
+				hashBatch[batchSize] = hash;
+				if (++batchSize == BATCH_SIZE) {
+					flushBatch(segmentHandler, location, geoType);
+				}
 				hash = FNV_64_INIT;
 			} else {
 				previousOrdinate = positiveSign ? number : -number;
 				hash *= FNV_64_PRIME;
 			}
 		}
+		flushBatch(segmentHandler, location, geoType);
 	}
 
 	@Override
@@ -301,6 +345,7 @@ class HashingPosListParser implements PosListParser {
 			if (err) {
 				// continue;
 				// TODO error collector
+				flushBatch(segmentHandler, location, geoType);
 				throw new NumberFormatException("Invalid Double : " + csq);
 			}
 
@@ -312,13 +357,29 @@ class HashingPosListParser implements PosListParser {
 			}
 
 			if (++ordinateCounter % 2 == 0) {
-				segmentHandler.coordinate2d(previousOrdinate, positiveSign ? number : -number, hash, location, geoType);
+				coordinateBatch[batchSize * 2] = previousOrdinate;
+				coordinateBatch[batchSize * 2 + 1] = positiveSign ? number : -number;
+				hashBatch[batchSize] = hash;
+				if (++batchSize == BATCH_SIZE) {
+					flushBatch(segmentHandler, location, geoType);
+				}
 				hash = FNV_64_INIT;
 			} else {
 				previousOrdinate = positiveSign ? number : -number;
 				hash *= FNV_64_PRIME;
 			}
 		}
+		flushBatch(segmentHandler, location, geoType);
+	}
+
+	/**
+	 * Pass the buffered coordinates of the current posList to the handler
+	 */
+	private void flushBatch(final HashingSegmentHandler segmentHandler, final long location, final int geoType) {
+		if (batchSize > 0) {
+			segmentHandler.coordinates2d(coordinateBatch, hashBatch, batchSize, location, geoType);
+			batchSize = 0;
+		}
 	}
 
 	@Override
@@ -30,5 +30,39 @@ public interface HashingSegmentHandler {
 		}
 	}
 
+	/**
+	 * Bulk variant of {@link #coordinate2d(double, double, long, long, int)} which
+	 * passes a batch of coordinates that belong to the same posList.
+	 *
+	 * The arrays are reused by the caller and must not be stored.
+	 *
+	 * @param coordinates X and Y coordinates, X at index 2 * i and Y at index 2 * i + 1
+	 * @param hashes coordinate hashes, one per coordinate tuple
+	 * @param size number of coordinate tuples in the batch
+	 * @param location location information of the posList
+	 * @param type geometry type
+	 */
+	default void coordinates2d(final double[] coordinates, final long[] hashes, final int size, final long location,
+			final int type) {
+		for (int i = 0, c = 0; i < size; i++, c += 2) {
+			coordinate2d(coordinates[c], coordinates[c + 1], hashes[i], location, type);
+		}
+	}
+
 	void nextGeometricObject();
+
+	/**
+	 * Check if consecutive duplicate points are passed to this handler.
+	 * Otherwise the parser drops them.
+	 *
+	 * @return true if the handler skips or reports duplicate points itself
+	 */
+	default boolean acceptsDuplicatePoints() {
+		return false;
+	}
+
+	/**
+	 * Switch from the exterior to the next interior of the current geometric object
+	 */
+	default void nextInterior() {}
 }
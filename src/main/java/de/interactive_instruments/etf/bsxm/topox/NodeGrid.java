@@ -0,0 +1,152 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.compress;
+
+import gnu.trove.TLongHashingStrategy;
+import gnu.trove.TLongIntHashMap;
+
+/**
+ * A uniform grid over the nodes of a topology for lookups with a tolerance.
+ *
+ * The cell size is the tolerance, so all nodes within the tolerance of a point
+ * are found in the cell of the point and its eight neighbours. Only occupied
+ * cells are stored: a hash map assigns a number to each cell and the nodes are
+ * sorted by cell with a counting sort, like in compressed sparse rows.
+ *
+ * The grid is a snapshot and does not change if the topology is extended.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class NodeGrid {
+
+	// mix both cell coordinates, Trove's default hash xors them
+	private static final TLongHashingStrategy CELL_HASHING = value -> (int) ((value * 0x9E3779B97F4A7C15L) >>> 32);
+
+	private final TopologyBuilder builder;
+	private final double tolerance;
+	private final double cellSize;
+	private final double originX;
+	private final double originY;
+	// cell key to cell number + 1
+	private final TLongIntHashMap cells;
+	private final int[] cellStarts;
+	// coordinate indices, sorted by cell
+	private final int[] nodes;
+
+	private NodeGrid(final TopologyBuilder builder, final double tolerance, final double cellSize,
+			final double originX, final double originY, final TLongIntHashMap cells, final int[] cellStarts,
+			final int[] nodes) {
+		this.builder = builder;
+		this.tolerance = tolerance;
+		this.cellSize = cellSize;
+		this.originX = originX;
+		this.originY = originY;
+		this.cells = cells;
+		this.cellStarts = cellStarts;
+		this.nodes = nodes;
+	}
+
+	/**
+	 * Sort the nodes into cells
+	 *
+	 * @param builder topology
+	 * @param tolerance maximum distance between a point and a found node, greater than 0
+	 * @return new grid
+	 */
+	static NodeGrid build(final TopologyBuilder builder, final double tolerance) {
+		final int coordinates = builder.internalCoordinateSize();
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 2; i < coordinates; i += 2) {
+			minX = Math.min(minX, builder.getCoordinate(i));
+			minY = Math.min(minY, builder.getCoordinate(i + 1));
+			maxX = Math.max(maxX, builder.getCoordinate(i));
+			maxY = Math.max(maxY, builder.getCoordinate(i + 1));
+		}
+		// the cell coordinates must fit into an int
+		final double cellSize = Math.max(tolerance, Math.max(maxX - minX, maxY - minY) / (1 << 30));
+
+		final TLongIntHashMap cells = new TLongIntHashMap(coordinates / 2, CELL_HASHING);
+		final int[] nodeCells = new int[coordinates / 2];
+		for (int i = 2; i < coordinates; i += 2) {
+			final long key = key((int) ((builder.getCoordinate(i) - minX) / cellSize),
+					(int) ((builder.getCoordinate(i + 1) - minY) / cellSize));
+			int cell = cells.get(key);
+			if (cell == 0) {
+				cell = cells.size() + 1;
+				cells.put(key, cell);
+			}
+			nodeCells[i / 2] = cell - 1;
+		}
+		final int[] cellStarts = new int[cells.size() + 1];
+		for (int n = 1; n < nodeCells.length; n++) {
+			cellStarts[nodeCells[n] + 1]++;
+		}
+		for (int c = 0; c < cells.size(); c++) {
+			cellStarts[c + 1] += cellStarts[c];
+		}
+		final int[] fill = new int[cells.size()];
+		System.arraycopy(cellStarts, 0, fill, 0, fill.length);
+		final int[] nodes = new int[Math.max(nodeCells.length - 1, 0)];
+		for (int n = 1; n < nodeCells.length; n++) {
+			nodes[fill[nodeCells[n]]++] = n * 2;
+		}
+		return new NodeGrid(builder, tolerance, cellSize, minX, minY, cells, cellStarts, nodes);
+	}
+
+	private static long key(final int cellX, final int cellY) {
+		return compress(cellX, cellY);
+	}
+
+	/**
+	 * Find the nearest node within the tolerance
+	 *
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @return coordinate index of the node or 0 if there is no node within the tolerance
+	 */
+	int nearest(final double x, final double y) {
+		final double cellX = Math.floor((x - originX) / cellSize);
+		final double cellY = Math.floor((y - originY) / cellSize);
+		if (cellX < -1 || cellY < -1 || cellX > Integer.MAX_VALUE || cellY > Integer.MAX_VALUE) {
+			return 0;
+		}
+		double nearestDistanceSq = tolerance * tolerance;
+		int nearest = 0;
+		for (int cx = (int) cellX - 1; cx <= (int) cellX + 1; cx++) {
+			for (int cy = (int) cellY - 1; cy <= (int) cellY + 1; cy++) {
+				final int cell = cells.get(key(cx, cy)) - 1;
+				if (cell == -1) {
+					continue;
+				}
+				for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+					final double dx = builder.getCoordinate(nodes[i]) - x;
+					final double dy = builder.getCoordinate(nodes[i] + 1) - y;
+					final double distanceSq = dx * dx + dy * dy;
+					if (distanceSq <= nearestDistanceSq) {
+						nearestDistanceSq = distanceSq;
+						nearest = nodes[i];
+					}
+				}
+			}
+		}
+		return nearest;
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+
+import gnu.trove.TIntArrayList;
+
+/**
+ * Finds nodes that lie on the interior of another edge.
+ *
+ * This happens if a vertex of one object lies on an edge of a neighbour,
+ * which has no vertex there. The edges are then not shared, and the defect
+ * only shows up indirectly, for instance as a hole. The check runs in one
+ * pass over the nodes, each node is looked up in the spatial index of the
+ * edges.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class NodesOnEdges {
+
+	/**
+	 * Receives the nodes on edges
+	 */
+	interface NodeOnEdgeVisitor {
+		/**
+		 * Called for a node on an edge
+		 *
+		 * @param coordIndex coordinate index of the node
+		 * @param edgeIndex index of the edge
+		 */
+		void nodeOnEdge(final int coordIndex, final int edgeIndex);
+	}
+
+	private NodesOnEdges() {}
+
+	/**
+	 * Find all nodes within a tolerance of the interior of another edge. Nodes that
+	 * are within the tolerance of an end of the edge are not reported.
+	 *
+	 * @param builder topology
+	 * @param edgeIndex spatial index of the edges
+	 * @param tolerance maximum distance between a node and an edge
+	 * @param visitor called for each node and edge, in the order of the nodes
+	 * @return number of reported nodes and edges
+	 */
+	static int find(final TopologyBuilder builder, final EdgeIndex edgeIndex, final double tolerance,
+			final NodeOnEdgeVisitor visitor) {
+		final TIntArrayList candidates = new TIntArrayList();
+		final TIntArrayList queue = new TIntArrayList();
+		final double toleranceSq = tolerance * tolerance;
+		int count = 0;
+		for (int n = 2; n < builder.internalCoordinateSize(); n += 2) {
+			final double x = builder.getCoordinate(n);
+			final double y = builder.getCoordinate(n + 1);
+			candidates.resetQuick();
+			edgeIndex.search(x - tolerance, y - tolerance, x + tolerance, y + tolerance, candidates, queue);
+			for (int i = 0; i < candidates.size(); i++) {
+				final int e = candidates.getQuick(i);
+				final long coordinateIndices = builder.getTopologicalData(e + COORDINATE_OFFSET);
+				final int source = getLeft(coordinateIndices);
+				final int target = getRight(coordinateIndices);
+				if (source == n || target == n) {
+					continue;
+				}
+				final double x1 = builder.getCoordinate(source);
+				final double y1 = builder.getCoordinate(source + 1);
+				final double dx = builder.getCoordinate(target) - x1;
+				final double dy = builder.getCoordinate(target + 1) - y1;
+				final double lengthSq = dx * dx + dy * dy;
+				// position of the projection along the edge
+				final double t = ((x - x1) * dx + (y - y1) * dy) / lengthSq;
+				if (t * t * lengthSq <= toleranceSq || (1 - t) * (1 - t) * lengthSq <= toleranceSq || t < 0 || t > 1) {
+					continue;
+				}
+				final double px = x1 + t * dx - x;
+				final double py = y1 + t * dy - y;
+				if (px * px + py * py <= toleranceSq) {
+					visitor.nodeOnEdge(n, e);
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+
+import java.util.Arrays;
+
+import gnu.trove.TLongArrayList;
+import gnu.trove.TLongIntHashMap;
+
+/**
+ * The objects that share edges, stored as compressed sparse rows.
+ *
+ * An object is identified by the database index and the pre value of the
+ * object, which are encoded in the compressed locations of all its posLists.
+ * Two objects are neighbours if one of them is on the left side and the other
+ * one on the right side of an edge. For each pair the number of shared edges
+ * and the sum of their lengths are stored.
+ *
+ * The neighbours of the object with the ID i are stored at the positions
+ * offsets[i] to offsets[i + 1] - 1, ordered by the neighbour ID. The IDs are
+ * assigned in the order in which the objects are found in the edges.
+ *
+ * The adjacency is a snapshot and does not change if the topology is extended.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class ObjectAdjacency {
+
+	// object key to object ID + 1
+	private final TLongIntHashMap ids;
+	// first location found for each object
+	private final long[] locations;
+	private final int[] offsets;
+	private final int[] neighbours;
+	private final int[] edgeCounts;
+	private final double[] lengths;
+
+	private ObjectAdjacency(final TLongIntHashMap ids, final long[] locations, final int[] offsets,
+			final int[] neighbours, final int[] edgeCounts, final double[] lengths) {
+		this.ids = ids;
+		this.locations = locations;
+		this.offsets = offsets;
+		this.neighbours = neighbours;
+		this.edgeCounts = edgeCounts;
+		this.lengths = lengths;
+	}
+
+	/**
+	 * Get the key of the object from a compressed location. The location of a
+	 * posList and the location of the object itself result in the same key.
+	 *
+	 * @param location compressed location
+	 * @return database index and object pre value
+	 */
+	static long objectKey(final long location) {
+		final int left = getLeft(location);
+		return compress(left & 0xFF000000, getRight(location) - (left & 0xFFFFFF));
+	}
+
+	/**
+	 * Collect the neighbours of all objects in one pass over the edges
+	 *
+	 * @param builder topology
+	 * @return new adjacency
+	 */
+	static ObjectAdjacency build(final TopologyBuilder builder) {
+		final TLongIntHashMap ids = new TLongIntHashMap();
+		final TLongArrayList locations = new TLongArrayList();
+		final int size = builder.internalTopologicalDataSize();
+		// one entry per side of each edge between two objects
+		final int[] from = new int[(size / TOPOLOGY_FIELDS_SIZE) * 2];
+		final int[] to = new int[from.length];
+		final double[] edgeLengths = new double[from.length];
+		int entries = 0;
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < size; e += TOPOLOGY_FIELDS_SIZE) {
+			final long left = builder.getTopologicalData(e + LEFT_LOCATION_INDEX);
+			final long right = builder.getTopologicalData(e + RIGHT_LOCATION_INDEX);
+			if (left == 0 || right == 0) {
+				continue;
+			}
+			final int leftId = id(ids, locations, left);
+			final int rightId = id(ids, locations, right);
+			if (leftId == rightId) {
+				continue;
+			}
+			final long coordinateIndices = builder.getTopologicalData(e + COORDINATE_OFFSET);
+			final int source = getLeft(coordinateIndices);
+			final int target = getRight(coordinateIndices);
+			final double length = Math.hypot(builder.getCoordinate(target) - builder.getCoordinate(source),
+					builder.getCoordinate(target + 1) - builder.getCoordinate(source + 1));
+			from[entries] = leftId;
+			to[entries] = rightId;
+			edgeLengths[entries++] = length;
+			from[entries] = rightId;
+			to[entries] = leftId;
+			edgeLengths[entries++] = length;
+		}
+
+		// counting sort by the object ID
+		final int objects = locations.size();
+		final int[] starts = new int[objects + 1];
+		for (int i = 0; i < entries; i++) {
+			starts[from[i] + 1]++;
+		}
+		for (int i = 0; i < objects; i++) {
+			starts[i + 1] += starts[i];
+		}
+		// neighbour ID in the upper, entry in the lower half
+		final long[] sorted = new long[entries];
+		final int[] fill = Arrays.copyOf(starts, objects);
+		for (int i = 0; i < entries; i++) {
+			sorted[fill[from[i]]++] = compress(to[i], i);
+		}
+
+		// merge the entries of the same neighbour
+		final int[] offsets = new int[objects + 1];
+		final int[] neighbours = new int[entries];
+		final int[] edgeCounts = new int[entries];
+		final double[] lengths = new double[entries];
+		int pos = 0;
+		for (int o = 0; o < objects; o++) {
+			offsets[o] = pos;
+			Arrays.sort(sorted, starts[o], starts[o + 1]);
+			for (int i = starts[o]; i < starts[o + 1]; i++) {
+				final int neighbour = getLeft(sorted[i]);
+				if (pos == offsets[o] || neighbours[pos - 1] != neighbour) {
+					neighbours[pos++] = neighbour;
+				}
+				edgeCounts[pos - 1]++;
+				lengths[pos - 1] += edgeLengths[getRight(sorted[i])];
+			}
+		}
+		offsets[objects] = pos;
+		return new ObjectAdjacency(ids, locations.toNativeArray(), offsets, Arrays.copyOf(neighbours, pos),
+				Arrays.copyOf(edgeCounts, pos), Arrays.copyOf(lengths, pos));
+	}
+
+	private static int id(final TLongIntHashMap ids, final TLongArrayList locations, final long location) {
+		final long key = objectKey(location);
+		final int id = ids.get(key);
+		if (id != 0) {
+			return id - 1;
+		}
+		locations.add(location);
+		ids.put(key, locations.size());
+		return locations.size() - 1;
+	}
+
+	/**
+	 * Get the number of objects that have at least one neighbour
+	 *
+	 * @return number of objects
+	 */
+	int size() {
+		return locations.length;
+	}
+
+	/**
+	 * Get the ID of an object
+	 *
+	 * @param location compressed location of the object or of one of its posLists
+	 * @return object ID or -1 if the object has no neighbours
+	 */
+	int id(final long location) {
+		return ids.get(objectKey(location)) - 1;
+	}
+
+	/**
+	 * Get the first location found for an object
+	 *
+	 * @param id object ID
+	 * @return compressed location of a posList of the object
+	 */
+	long location(final int id) {
+		return locations[id];
+	}
+
+	/**
+	 * Get the position of the first neighbour of an object
+	 *
+	 * @param id object ID
+	 * @return position
+	 */
+	int firstNeighbour(final int id) {
+		return offsets[id];
+	}
+
+	/**
+	 * Get the position after the last neighbour of an object
+	 *
+	 * @param id object ID
+	 * @return position
+	 */
+	int endNeighbour(final int id) {
+		return offsets[id + 1];
+	}
+
+	/**
+	 * Get the object ID of a neighbour
+	 *
+	 * @param position position
+	 * @return object ID
+	 */
+	int neighbour(final int position) {
+		return neighbours[position];
+	}
+
+	/**
+	 * Get the number of edges shared with a neighbour
+	 *
+	 * @param position position
+	 * @return number of edges
+	 */
+	int edgeCount(final int position) {
+		return edgeCounts[position];
+	}
+
+	/**
+	 * Get the length of the edges shared with a neighbour
+	 *
+	 * @param position position
+	 * @return length
+	 */
+	double length(final int position) {
+		return lengths[position];
+	}
+}
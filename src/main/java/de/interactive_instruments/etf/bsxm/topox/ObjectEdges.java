@@ -0,0 +1,125 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+import static java.lang.Math.abs;
+
+/**
+ * The edges of each geometric object, stored as compressed sparse rows.
+ *
+ * The edges of the object with the internal ID i are stored at the positions
+ * offsets[i] to offsets[i + 1] - 1, in ascending order of the edge index. The
+ * rows are filled with a counting sort over both sides of all edges. An edge is
+ * stored with a negative index if the object is on its left side, so that the
+ * object is always on the right side of the stored edge. An edge with the same
+ * object on both sides is stored once. Exterior and interior rings of an object
+ * are not distinguished.
+ *
+ * The index is a snapshot and does not change if the topology is extended.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class ObjectEdges {
+
+	private final int[] offsets;
+	private final int[] edges;
+
+	private ObjectEdges(final int[] offsets, final int[] edges) {
+		this.offsets = offsets;
+		this.edges = edges;
+	}
+
+	/**
+	 * Collect the edges of all objects
+	 *
+	 * @param builder topology
+	 * @return new index
+	 */
+	static ObjectEdges build(final TopologyBuilder builder) {
+		final int size = builder.internalTopologicalDataSize();
+		final int objects = builder.internalGetCurrentObjectId() + 1;
+		final int[] offsets = new int[objects + 1];
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < size; e += TOPOLOGY_FIELDS_SIZE) {
+			final long objs = builder.getTopologicalData(e + OBJ_OFFSET);
+			final int left = abs(getLeft(objs));
+			final int right = abs(getRight(objs));
+			if (left != 0) {
+				offsets[left + 1]++;
+			}
+			if (right != 0 && right != left) {
+				offsets[right + 1]++;
+			}
+		}
+		for (int i = 0; i < objects; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		final int[] edges = new int[offsets[objects]];
+		final int[] fill = new int[objects];
+		System.arraycopy(offsets, 0, fill, 0, objects);
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < size; e += TOPOLOGY_FIELDS_SIZE) {
+			final long objs = builder.getTopologicalData(e + OBJ_OFFSET);
+			final int left = abs(getLeft(objs));
+			final int right = abs(getRight(objs));
+			if (left != 0) {
+				edges[fill[left]++] = -e;
+			}
+			if (right != 0 && right != left) {
+				edges[fill[right]++] = e;
+			}
+		}
+		return new ObjectEdges(offsets, edges);
+	}
+
+	/**
+	 * Get the number of object IDs, including the unused ID 0
+	 *
+	 * @return number of object IDs
+	 */
+	int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Get the position of the first edge of an object
+	 *
+	 * @param objectId internal object ID
+	 * @return position
+	 */
+	int firstEdge(final int objectId) {
+		return offsets[abs(objectId)];
+	}
+
+	/**
+	 * Get the position after the last edge of an object
+	 *
+	 * @param objectId internal object ID
+	 * @return position
+	 */
+	int endEdge(final int objectId) {
+		return offsets[abs(objectId) + 1];
+	}
+
+	/**
+	 * Get an edge
+	 *
+	 * @param position position
+	 * @return signed edge index, the object is on the right side
+	 */
+	int edge(final int position) {
+		return edges[position];
+	}
+}
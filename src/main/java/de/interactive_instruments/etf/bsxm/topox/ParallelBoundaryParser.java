@@ -0,0 +1,220 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import gnu.trove.TIntArrayList;
+import gnu.trove.TLongArrayList;
+
+/**
+ * Checks multiple boundaries of frozen topologies in parallel.
+ *
+ * The posLists are recorded by the calling thread, together with a bit mask
+ * that selects the Boundary Builders, where bit i stands for the i-th Boundary
+ * Builder. Whenever the recorded posLists exceed the batch length, and once more
+ * when parse() is called, they are parsed by one task per Boundary Builder, with
+ * the parser of the Boundary Builder. The topologies are only read by the tasks
+ * and must not be extended while they run.
+ *
+ * The errors of each task are buffered and passed to the error collectors batch
+ * by batch in the order of the Boundary Builders, so the output does not depend
+ * on the scheduling.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ParallelBoundaryParser {
+
+	private final static int NEXT_GEOMETRIC_OBJECT = -1;
+	private final static int NEXT_INTERIOR = -2;
+
+	// Number of recorded bytes or characters after which the posLists are parsed
+	private final static int DEFAULT_BATCH_LENGTH = 1 << 22;
+
+	public final PosListParser parser;
+	private final BoundaryBuilder[] boundaryBuilders;
+	private final ForkJoinPool pool;
+	private final int batchLength;
+
+	// Recorded events: index of the sequence or one of the codes above
+	private final TIntArrayList events = new TIntArrayList();
+	private final TLongArrayList masks = new TLongArrayList();
+	private final List<Object> sequences = new ArrayList<>();
+	private final TLongArrayList locations = new TLongArrayList();
+	// geometry type << 1 | 1 for 3D coordinates
+	private final TIntArrayList types = new TIntArrayList();
+	private long mask = FanOutParser.ALL_SINKS;
+	private int recordedLength;
+
+	public ParallelBoundaryParser(final List<BoundaryBuilder> boundaryBuilders, final ForkJoinPool pool) {
+		this(boundaryBuilders, pool, DEFAULT_BATCH_LENGTH);
+	}
+
+	/**
+	 * Creates a new parser
+	 *
+	 * @param boundaryBuilders Boundary Builders, at most 64
+	 * @param pool pool that runs one task per Boundary Builder
+	 * @param batchLength number of recorded bytes or characters after which the
+	 *                       posLists are parsed
+	 */
+	public ParallelBoundaryParser(final List<BoundaryBuilder> boundaryBuilders, final ForkJoinPool pool,
+			final int batchLength) {
+		if (boundaryBuilders.size() > FanOutParser.MAX_SINKS) {
+			throw new IllegalArgumentException("Maximum number of Boundary Builders exceeded: " + FanOutParser.MAX_SINKS);
+		}
+		this.boundaryBuilders = boundaryBuilders.toArray(new BoundaryBuilder[0]);
+		this.pool = pool;
+		this.batchLength = batchLength;
+		this.parser = new RecordingParser();
+	}
+
+	/**
+	 * Select the Boundary Builders for the next geometric objects
+	 *
+	 * @param mask bit i set to 1 selects the i-th Boundary Builder
+	 */
+	public void select(final long mask) {
+		this.mask = mask;
+	}
+
+	public void nextInterior() {
+		record(NEXT_INTERIOR);
+	}
+
+	private void record(final int event) {
+		events.add(event);
+		masks.add(mask);
+	}
+
+	private final class RecordingParser implements PosListParser {
+
+		private boolean threeDCoordinates;
+
+		private void record(final Object sequence, final int length, final boolean threeDCoordinates,
+				final long location, final int geoType) {
+			ParallelBoundaryParser.this.record(sequences.size());
+			sequences.add(sequence);
+			locations.add(location);
+			types.add(geoType << 1 | (threeDCoordinates ? 1 : 0));
+			recordedLength += length;
+			if (recordedLength >= batchLength) {
+				parse();
+			}
+		}
+
+		@Override
+		public void parseDirectPositions(final byte[] byteSequence, final long location, final int geoType) {
+			record(byteSequence, byteSequence.length, threeDCoordinates, location, geoType);
+		}
+
+		@Override
+		public void parseDirectPositions(final CharSequence sequence, final long location, final int geoType) {
+			record(sequence, sequence.length(), threeDCoordinates, location, geoType);
+		}
+
+		@Override
+		public void parseDirectPositions(final byte[] byteSequence, final boolean threeDCoordinates,
+				final long location, final int geoType) {
+			record(byteSequence, byteSequence.length, threeDCoordinates, location, geoType);
+		}
+
+		@Override
+		public void parseDirectPositions(final CharSequence sequence, final boolean threeDCoordinates,
+				final long location, final int geoType) {
+			record(sequence, sequence.length(), threeDCoordinates, location, geoType);
+		}
+
+		@Override
+		public void dimension(final boolean threeDCoordinates) {
+			this.threeDCoordinates = threeDCoordinates;
+		}
+
+		@Override
+		public void nextGeometricObject() {
+			ParallelBoundaryParser.this.record(NEXT_GEOMETRIC_OBJECT);
+		}
+	}
+
+	/**
+	 * Parse the recorded posLists with all Boundary Builders in parallel, pass
+	 * the errors to the error collectors and clear the recording
+	 *
+	 * The state of the parsers is kept, so the next batch may continue the
+	 * current geometric object.
+	 */
+	public void parse() {
+		final BufferedErrorCollector[] buffers = new BufferedErrorCollector[boundaryBuilders.length];
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>(boundaryBuilders.length);
+		for (int i = 0; i < boundaryBuilders.length; i++) {
+			final int builder = i;
+			buffers[i] = new BufferedErrorCollector();
+			tasks.add(pool.submit(() -> replay(builder, buffers[builder])));
+		}
+		for (final ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+		for (int i = 0; i < boundaryBuilders.length; i++) {
+			buffers[i].flushTo(boundaryBuilders[i].errorCollector());
+		}
+		events.resetQuick();
+		masks.resetQuick();
+		sequences.clear();
+		locations.resetQuick();
+		types.resetQuick();
+		recordedLength = 0;
+	}
+
+	private void replay(final int builder, final TopologyErrorCollector errorCollector) {
+		final BoundaryBuilder boundaryBuilder = boundaryBuilders[builder];
+		final long bit = 1L << builder;
+		final PosListParser boundaryParser = boundaryBuilder.parser;
+		final HashingSegmentHandler handler = boundaryBuilder.handler();
+		boundaryBuilder.redirectErrors(errorCollector);
+		try {
+			replay(bit, boundaryParser, handler);
+		} finally {
+			boundaryBuilder.redirectErrors(null);
+		}
+	}
+
+	private void replay(final long bit, final PosListParser boundaryParser, final HashingSegmentHandler handler) {
+		for (int i = 0; i < events.size(); i++) {
+			if ((masks.getQuick(i) & bit) == 0) {
+				continue;
+			}
+			final int event = events.getQuick(i);
+			if (event == NEXT_GEOMETRIC_OBJECT) {
+				boundaryParser.nextGeometricObject();
+			} else if (event == NEXT_INTERIOR) {
+				handler.nextInterior();
+			} else {
+				final Object sequence = sequences.get(event);
+				final int type = types.getQuick(event);
+				if (sequence instanceof byte[]) {
+					boundaryParser.parseDirectPositions((byte[]) sequence, (type & 1) != 0, locations.getQuick(event),
+							type >> 1);
+				} else {
+					boundaryParser.parseDirectPositions((CharSequence) sequence, (type & 1) != 0,
+							locations.getQuick(event), type >> 1);
+				}
+			}
+		}
+	}
+}
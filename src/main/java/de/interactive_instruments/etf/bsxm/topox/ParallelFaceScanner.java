@@ -0,0 +1,513 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.CCWI_OFFSET;
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.TOPOLOGY_FIELDS_SIZE;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntIntHashMap;
+
+/**
+ * Finds the rings of empty interiors and builds the face table with multiple threads.
+ *
+ * The edge range is split into chunks that are scanned in a ForkJoinPool. A worker
+ * that finds an unvisited edge claims it in an atomic bitset and walks along the ring,
+ * claiming the following edges, until it returns to the first edge, reaches an edge
+ * that does not belong to the ring or reaches an edge that has been claimed by another
+ * worker. In the last case the walk stopped at the first edge of another fragment.
+ *
+ * Afterwards the fragments are stitched together and the result is derived from
+ * the edge indices only, so it does not depend on the scheduling and is the same as
+ * the result of the sequential scan in {@link TopologyBuilder#findNextEmptyInterior(int, EdgeBitSet)}:
+ * a ring is reported with the lowest edge index, open chains of edges are split
+ * where the sequential scan would have started a new walk. The face table is built
+ * the same way from both directions of the edges, see {@link #faceTable()}.
+ *
+ * If the fragments can not be stitched together, the sequential scan is used.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class ParallelFaceScanner {
+
+	// Topologies with less edges are scanned sequentially
+	final static int PARALLEL_THRESHOLD = 65_536;
+	final static int DEFAULT_CHUNK_SIZE = 16_384;
+
+	// Fragment end markers, other values are the claimed edge the walk stopped at
+	private final static int END_OPEN = 0;
+	private final static int END_CLOSED = -1;
+
+	private final TopologyBuilder builder;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	ParallelFaceScanner(final TopologyBuilder builder, final ForkJoinPool pool, final int chunkSize) {
+		this.builder = builder;
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	ParallelFaceScanner(final TopologyBuilder builder) {
+		this(builder, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Check if the topology is large enough to be scanned in parallel
+	 *
+	 * @return true if the parallel scan is used
+	 */
+	boolean isParallel() {
+		return pool.getParallelism() > 1 &&
+				builder.internalTopologicalDataSize() / TOPOLOGY_FIELDS_SIZE >= PARALLEL_THRESHOLD;
+	}
+
+	/**
+	 * Find the first edge of each empty interior
+	 *
+	 * @return edge indices in ascending order
+	 */
+	TIntArrayList emptyInteriors() {
+		return scan(newEmptyInteriorsScan(chunks())).emptyInteriors();
+	}
+
+	/**
+	 * Create a scan for empty interiors whose chunks are scanned by the caller
+	 *
+	 * @param chunks number of chunks
+	 * @return new scan
+	 */
+	Scan newEmptyInteriorsScan(final int chunks) {
+		return new Scan(chunks);
+	}
+
+	/**
+	 * Walk all rings of the topology. The result is the same as the result of
+	 * {@link FaceTable#build(TopologyBuilder)}.
+	 *
+	 * Both directions of the edges are claimed and walked like in the scans, with
+	 * the slots of the edge directions in place of the edge indices. The fragments
+	 * are stitched together, so the first edge of each ring is known, and then the
+	 * rings are walked again from their first edge in parallel. The first edges are
+	 * marked before, so a walk along a broken ring stops where the sequential walk
+	 * stops.
+	 *
+	 * @return new face table
+	 */
+	FaceTable faceTable() {
+		final int edges = builder.internalTopologicalDataSize() / TOPOLOGY_FIELDS_SIZE;
+		final AtomicLongArray claimed = new AtomicLongArray(((edges * 2) >> 6) + 1);
+		final TIntArrayList[] fragments = new TIntArrayList[chunks()];
+		if (fragments.length > 0) {
+			pool.invoke(new RangeTask(0, fragments.length, 1,
+					(from, to) -> fragments[from] = ringFragments(claimed, from)));
+		}
+		final TIntArrayList firstSlots = new TIntArrayList();
+		if (!merge(fragments, firstSlots, new TIntArrayList())) {
+			return FaceTable.build(builder);
+		}
+
+		// 0 marks an unvisited edge direction, rings are stored 1-based during the walk
+		final int[] rings = new int[edges * 2];
+		final int[] firstEdges = new int[firstSlots.size()];
+		for (int ring = 0; ring < firstEdges.length; ring++) {
+			final int slot = firstSlots.getQuick(ring);
+			firstEdges[ring] = (slot >> 1) * TOPOLOGY_FIELDS_SIZE * ((slot & 1) == 0 ? 1 : -1);
+			rings[slot] = ring + 1;
+		}
+		final int[] edgeCounts = new int[firstEdges.length];
+		final double[] areas = new double[firstEdges.length];
+		final double[] envelopes = new double[firstEdges.length * 4];
+		final int[] objectIds = new int[firstEdges.length];
+		final long[] objects = new long[firstEdges.length];
+		if (firstEdges.length > 0) {
+			pool.invoke(new RangeTask(0, firstEdges.length, chunkSize, (from, to) -> {
+				final FaceTable.RingWalk walk = new FaceTable.RingWalk();
+				for (int ring = from; ring < to; ring++) {
+					walk.walk(builder, firstEdges[ring], ring + 1, rings);
+					edgeCounts[ring] = walk.count;
+					areas[ring] = walk.area;
+					envelopes[ring * 4] = walk.minX;
+					envelopes[ring * 4 + 1] = walk.minY;
+					envelopes[ring * 4 + 2] = walk.maxX;
+					envelopes[ring * 4 + 3] = walk.maxY;
+					objectIds[ring] = walk.objectId;
+					objects[ring] = walk.object;
+				}
+			}));
+		}
+		for (int i = 0; i < rings.length; i++) {
+			rings[i]--;
+		}
+		return new FaceTable(firstEdges, edgeCounts, areas, envelopes, objectIds, objects, rings);
+	}
+
+	/**
+	 * Walk along the rings that start in a chunk, in both directions of the edges.
+	 * The fragments are stored like in {@link Scan#scan(int, int, int)}, with the
+	 * slots of the edge directions in place of the edge indices.
+	 */
+	private TIntArrayList ringFragments(final AtomicLongArray claimed, final int chunk) {
+		final TIntArrayList result = new TIntArrayList();
+		final int from = Math.max(TOPOLOGY_FIELDS_SIZE, chunk * chunkSize * TOPOLOGY_FIELDS_SIZE);
+		final int to = Math.min(builder.internalTopologicalDataSize(), (chunk + 1) * chunkSize * TOPOLOGY_FIELDS_SIZE);
+		for (int i = from; i < to; i += TOPOLOGY_FIELDS_SIZE) {
+			for (int direction = 0; direction < 2; direction++) {
+				final int first = direction == 0 ? i : -i;
+				final int firstSlot = FaceTable.slot(first);
+				if (!claimBit(claimed, firstSlot)) {
+					continue;
+				}
+				final int header = result.size();
+				result.add(firstSlot);
+				result.add(0);
+				result.add(END_OPEN);
+				result.add(1);
+				result.add(firstSlot);
+				result.add(0);
+				int min = firstSlot;
+				int length = 1;
+				int next = builder.getLeftOrRightByIndex(-first, CCWI_OFFSET);
+				// a broken ring ends at edge 0
+				while (next != 0) {
+					if (next == first) {
+						result.setQuick(header + 2, END_CLOSED);
+						break;
+					}
+					final int slot = FaceTable.slot(next);
+					if (!claimBit(claimed, slot)) {
+						result.setQuick(header + 2, slot);
+						break;
+					}
+					if (slot < min) {
+						min = slot;
+						result.add(slot);
+						result.add(length);
+						result.setQuick(header + 3, result.getQuick(header + 3) + 1);
+					}
+					length++;
+					next = builder.getLeftOrRightByIndex(-next, CCWI_OFFSET);
+				}
+				result.setQuick(header + 1, length);
+			}
+		}
+		return result;
+	}
+
+	private int chunks() {
+		return (builder.internalTopologicalDataSize() / TOPOLOGY_FIELDS_SIZE + chunkSize - 1) / chunkSize;
+	}
+
+	private Scan scan(final Scan scan) {
+		if (scan.fragments.length > 0) {
+			pool.invoke(new ScanTask(scan, 0, scan.fragments.length));
+		}
+		return scan;
+	}
+
+	private static boolean claim(final AtomicLongArray claimed, final int edgeIndex) {
+		return claimBit(claimed, edgeIndex / TOPOLOGY_FIELDS_SIZE);
+	}
+
+	private static boolean claimBit(final AtomicLongArray claimed, final int bit) {
+		final long mask = 1L << bit;
+		while (true) {
+			final long word = claimed.get(bit >> 6);
+			if ((word & mask) != 0) {
+				return false;
+			}
+			if (claimed.compareAndSet(bit >> 6, word, word | mask)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * The state of one scan. Each chunk of the edge range is scanned once, in
+	 * any order and by any thread, before the result is retrieved.
+	 */
+	final class Scan {
+
+		private final AtomicLongArray claimed;
+		private final TIntArrayList[] fragments;
+
+		private Scan(final int chunks) {
+			this.claimed = new AtomicLongArray(
+					((builder.internalTopologicalDataSize() / TOPOLOGY_FIELDS_SIZE) >> 6) + 2);
+			this.fragments = new TIntArrayList[chunks];
+		}
+
+		private boolean belongsToRing(final int edgeIndex) {
+			return builder.isEmptyInteriorEdge(edgeIndex);
+		}
+
+		/**
+		 * Walk along the rings that start in a chunk.
+		 *
+		 * Each fragment is stored as: first edge, number of edges, end marker,
+		 * number of minimums, followed by the pairs of edge index and position
+		 * of the edges that have a lower index than all previous edges of the fragment.
+		 *
+		 * @param chunk chunk
+		 * @param from first edge index of the chunk
+		 * @param to edge index after the chunk
+		 */
+		void scan(final int chunk, final int from, final int to) {
+			final TIntArrayList result = new TIntArrayList();
+			for (int i = Math.max(TOPOLOGY_FIELDS_SIZE, from); i < to; i += TOPOLOGY_FIELDS_SIZE) {
+				if (belongsToRing(i) && claim(claimed, i)) {
+					final int header = result.size();
+					result.add(i);
+					result.add(0);
+					result.add(END_OPEN);
+					result.add(1);
+					result.add(i);
+					result.add(0);
+					int min = i;
+					int length = 1;
+					int next = builder.getLeftOrRightByIndex(-i, CCWI_OFFSET);
+					while (true) {
+						if (next == i || next == -i) {
+							result.setQuick(header + 2, END_CLOSED);
+							break;
+						}
+						if (!belongsToRing(next)) {
+							break;
+						}
+						if (next < 0) {
+							// Edges of the rings are expected in their own direction
+							// and the sequential scan would start elsewhere
+							result.setQuick(header + 2, next);
+							break;
+						}
+						if (!claim(claimed, next)) {
+							result.setQuick(header + 2, next);
+							break;
+						}
+						if (next < min) {
+							min = next;
+							result.add(next);
+							result.add(length);
+							result.setQuick(header + 3, result.getQuick(header + 3) + 1);
+						}
+						length++;
+						next = builder.getLeftOrRightByIndex(-next, CCWI_OFFSET);
+					}
+					result.setQuick(header + 1, length);
+				}
+			}
+			fragments[chunk] = result;
+		}
+
+		/**
+		 * Get the first edge of each empty interior
+		 *
+		 * @return edge indices in ascending order
+		 */
+		TIntArrayList emptyInteriors() {
+			final TIntArrayList starts = new TIntArrayList();
+			if (!merge(fragments, starts, new TIntArrayList())) {
+				starts.clear();
+				final EdgeBitSet visited = builder.newEdgeBitSet();
+				for (int i = builder.findNextEmptyInterior(TOPOLOGY_FIELDS_SIZE, visited); i < builder
+						.internalTopologicalDataSize(); i = builder.findNextEmptyInterior(i + TOPOLOGY_FIELDS_SIZE,
+								visited)) {
+					starts.add(i);
+				}
+			}
+			return starts;
+		}
+	}
+
+	/**
+	 * Processes a part of a range
+	 */
+	private interface RangeAction {
+		void run(final int from, final int to);
+	}
+
+	/**
+	 * Splits a range into parts of the given size that are processed in parallel
+	 */
+	private static final class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int partSize;
+		private final RangeAction action;
+
+		private RangeTask(final int from, final int to, final int partSize, final RangeAction action) {
+			this.from = from;
+			this.to = to;
+			this.partSize = partSize;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > partSize) {
+				final int mid = from + Math.max(1, (to - from) / partSize / 2) * partSize;
+				invokeAll(new RangeTask(from, mid, partSize, action), new RangeTask(mid, to, partSize, action));
+			} else if (to > from) {
+				action.run(from, to);
+			}
+		}
+	}
+
+	private final class ScanTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Scan scan;
+		private final int fromChunk;
+		private final int toChunk;
+
+		private ScanTask(final Scan scan, final int fromChunk, final int toChunk) {
+			this.scan = scan;
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (toChunk - fromChunk > 1) {
+				final int mid = (fromChunk + toChunk) >>> 1;
+				invokeAll(new ScanTask(scan, fromChunk, mid), new ScanTask(scan, mid, toChunk));
+			} else {
+				scan.scan(fromChunk, fromChunk * chunkSize * TOPOLOGY_FIELDS_SIZE,
+						Math.min(builder.internalTopologicalDataSize(), (fromChunk + 1) * chunkSize * TOPOLOGY_FIELDS_SIZE));
+			}
+		}
+	}
+
+	/**
+	 * Stitch the fragments together
+	 */
+	private static boolean merge(final TIntArrayList[] chunkFragments, final TIntArrayList starts,
+			final TIntArrayList steps) {
+		final TIntArrayList fragments = new TIntArrayList();
+		for (final TIntArrayList f : chunkFragments) {
+			fragments.add(f.toNativeArray());
+		}
+		// Offsets of all fragments, mapped by their first edge
+		final TIntArrayList offsets = new TIntArrayList();
+		final TIntIntHashMap fragmentByFirstEdge = new TIntIntHashMap();
+		for (int pos = 0; pos < fragments.size(); pos += 4 + fragments.getQuick(pos + 3) * 2) {
+			fragmentByFirstEdge.put(fragments.getQuick(pos), offsets.size());
+			offsets.add(pos);
+		}
+		final int fragmentCount = offsets.size();
+
+		// Successor fragment or -1 if the chain ends
+		final int[] successors = new int[fragmentCount];
+		final boolean[] hasPredecessor = new boolean[fragmentCount];
+		for (int f = 0; f < fragmentCount; f++) {
+			final int end = fragments.getQuick(offsets.getQuick(f) + 2);
+			if (end == END_CLOSED) {
+				successors[f] = f;
+			} else if (end == END_OPEN) {
+				successors[f] = -1;
+			} else if (end > 0 && fragmentByFirstEdge.containsKey(end)) {
+				final int successor = fragmentByFirstEdge.get(end);
+				if (hasPredecessor[successor] ||
+						fragments.getQuick(offsets.getQuick(successor) + 2) == END_CLOSED) {
+					return false;
+				}
+				successors[f] = successor;
+				hasPredecessor[successor] = true;
+			} else {
+				return false;
+			}
+		}
+
+		final TIntArrayList chainStarts = new TIntArrayList();
+		final TIntArrayList chainSteps = new TIntArrayList();
+		final boolean[] processed = new boolean[fragmentCount];
+
+		// Open chains, the sequential scan starts a walk at each edge with a lower
+		// index than all previous edges of the chain and stops at the next one
+		for (int f = 0; f < fragmentCount; f++) {
+			if (!hasPredecessor[f] && successors[f] != f) {
+				int min = Integer.MAX_VALUE;
+				int position = 0;
+				int lastStart = -1;
+				int lastPosition = 0;
+				for (int current = f; current != -1; current = successors[current]) {
+					processed[current] = true;
+					final int offset = offsets.getQuick(current);
+					final int minimums = fragments.getQuick(offset + 3);
+					for (int m = 0; m < minimums; m++) {
+						final int edge = fragments.getQuick(offset + 4 + m * 2);
+						if (edge < min) {
+							min = edge;
+							final int edgePosition = position + fragments.getQuick(offset + 5 + m * 2);
+							if (lastStart != -1) {
+								chainStarts.add(lastStart);
+								chainSteps.add(edgePosition - lastPosition - 1);
+							}
+							lastStart = edge;
+							lastPosition = edgePosition;
+						}
+					}
+					position += fragments.getQuick(offset + 1);
+				}
+				chainStarts.add(lastStart);
+				chainSteps.add(position - lastPosition - 1);
+			}
+		}
+
+		// Closed rings, the sequential scan walks the whole ring from the edge with the lowest index
+		for (int f = 0; f < fragmentCount; f++) {
+			if (!processed[f]) {
+				int min = Integer.MAX_VALUE;
+				int length = 0;
+				int current = f;
+				do {
+					if (current == -1 || processed[current]) {
+						return false;
+					}
+					processed[current] = true;
+					final int offset = offsets.getQuick(current);
+					// the last minimum is the lowest edge index of the fragment
+					min = Math.min(min, fragments.getQuick(offset + 4 + (fragments.getQuick(offset + 3) - 1) * 2));
+					length += fragments.getQuick(offset + 1);
+					current = successors[current];
+				} while (current != f);
+				chainStarts.add(min);
+				chainSteps.add(length - 1);
+			}
+		}
+
+		// Order by first edge, like the sequential scan
+		final long[] keys = new long[chainStarts.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = ((long) chainStarts.getQuick(i) << 32) | i;
+		}
+		Arrays.sort(keys);
+		for (final long key : keys) {
+			starts.add(chainStarts.getQuick((int) key));
+			steps.add(chainSteps.getQuick((int) key));
+		}
+		return true;
+	}
+}
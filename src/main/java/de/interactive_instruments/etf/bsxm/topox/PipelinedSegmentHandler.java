@@ -0,0 +1,309 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A segment handler that decouples the parsing from building the topology.
+ *
+ * The parsing thread (producer) copies the coordinates, hashes and locations into
+ * the slots of a preallocated ring buffer. A single consumer thread drains the
+ * slots and passes them to the wrapped handler, which therefore is only accessed
+ * by one thread. nextGeometricObject() and nextInterior() calls are passed in-band
+ * as markers, so the order of all calls is preserved.
+ *
+ * If the ring buffer is full, the producer waits until the consumer has freed a slot.
+ * The wrapped handler must not be accessed until {@link #sync()} returned.
+ *
+ * The consumer thread is started with the first published slot and stopped by
+ * {@link #sync()}, so it only runs while posLists are parsed.
+ *
+ * Only one producer thread is supported.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class PipelinedSegmentHandler implements HashingSegmentHandler {
+
+	// Slot types, values >= 0 are coordinate slots with the geometry type
+	private final static int NEXT_GEOMETRIC_OBJECT = -1;
+	private final static int NEXT_INTERIOR = -2;
+
+	private final static int SPINS = 128;
+	private final static long PARK_NANOS = 50_000;
+
+	private final HashingSegmentHandler handler;
+	private final String consumerName;
+	// null if the consumer is not running
+	private Thread consumer;
+
+	// Slots, allocated with the first claimed slot and dropped by release().
+	// The capacity must be a power of two
+	private final int mask;
+	private final int batchSize;
+	private double[][] coordinates;
+	private long[][] hashes;
+	private int[] sizes;
+	private long[] locations;
+	private int[] types;
+
+	// Sequence numbers of the next slot that is published by the producer
+	// and the next slot that is processed by the consumer
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong consumed = new AtomicLong();
+
+	// Slot currently filled by the producer, not yet published
+	private long openSequence;
+	private int openSize;
+
+	private volatile boolean consumerParked;
+	private volatile boolean stopping;
+	private volatile Throwable failure;
+
+	/**
+	 * Creates the handler
+	 *
+	 * @param name name used for the consumer thread
+	 * @param handler handler that is called by the consumer thread
+	 * @param capacity number of slots, rounded up to the next power of two
+	 * @param batchSize maximum number of coordinate tuples in one slot
+	 */
+	PipelinedSegmentHandler(final String name, final HashingSegmentHandler handler, final int capacity,
+			final int batchSize) {
+		this.handler = handler;
+		final int slots = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+		this.mask = slots - 1;
+		this.batchSize = batchSize;
+		this.openSequence = -1;
+		this.consumerName = "TopoX-builder-" + name;
+	}
+
+	@Override
+	public void coordinate2d(final double x, final double y, final long hash, final long location, final int type) {
+		final int slot = openSlot(location, type);
+		coordinates[slot][openSize * 2] = x;
+		coordinates[slot][openSize * 2 + 1] = y;
+		hashes[slot][openSize] = hash;
+		++openSize;
+	}
+
+	@Override
+	public void coordinates2d(final double[] coordinates, final long[] hashes, final int size, final long location,
+			final int type) {
+		int copied = 0;
+		while (copied < size) {
+			final int slot = openSlot(location, type);
+			final int length = Math.min(size - copied, batchSize - openSize);
+			System.arraycopy(coordinates, copied * 2, this.coordinates[slot], openSize * 2, length * 2);
+			System.arraycopy(hashes, copied, this.hashes[slot], openSize, length);
+			openSize += length;
+			copied += length;
+		}
+	}
+
+	@Override
+	public void nextGeometricObject() {
+		publishMarker(NEXT_GEOMETRIC_OBJECT);
+	}
+
+	@Override
+	public boolean acceptsDuplicatePoints() {
+		return handler.acceptsDuplicatePoints();
+	}
+
+	@Override
+	public void nextInterior() {
+		publishMarker(NEXT_INTERIOR);
+	}
+
+	/**
+	 * Blocks until the consumer has processed all published slots and stops the
+	 * consumer thread. The thread is started again with the next published slot.
+	 *
+	 * @throws IllegalStateException if the consumer failed
+	 */
+	void sync() {
+		publishOpenSlot();
+		final long target = published.get();
+		for (int spins = 0; consumed.get() < target; spins++) {
+			checkFailure();
+			idle(spins);
+		}
+		checkFailure();
+		stopConsumer();
+	}
+
+	/**
+	 * Processes all outstanding slots, stops the consumer thread and releases
+	 * the slots. The slots are allocated again with the next published slot.
+	 *
+	 * @throws IllegalStateException if the consumer failed
+	 */
+	void release() {
+		sync();
+		coordinates = null;
+		hashes = null;
+		sizes = null;
+		locations = null;
+		types = null;
+	}
+
+	private void allocateSlots() {
+		final int slots = mask + 1;
+		coordinates = new double[slots][batchSize * 2];
+		hashes = new long[slots][batchSize];
+		sizes = new int[slots];
+		locations = new long[slots];
+		types = new int[slots];
+	}
+
+	private void startConsumer() {
+		stopping = false;
+		consumer = new Thread(this::consume, consumerName);
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	private void stopConsumer() {
+		if (consumer != null) {
+			stopping = true;
+			LockSupport.unpark(consumer);
+			boolean interrupted = false;
+			while (consumer.isAlive()) {
+				try {
+					consumer.join();
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			consumer = null;
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Get the slot the producer currently fills, publish it and claim
+	 * a new one if it is full or belongs to another posList
+	 */
+	private int openSlot(final long location, final int type) {
+		if (openSequence != -1) {
+			final int slot = (int) openSequence & mask;
+			if (openSize < batchSize && locations[slot] == location && types[slot] == type) {
+				return slot;
+			}
+			publishOpenSlot();
+		}
+		final int slot = claim();
+		locations[slot] = location;
+		types[slot] = type;
+		openSize = 0;
+		return slot;
+	}
+
+	private void publishMarker(final int marker) {
+		publishOpenSlot();
+		final int slot = claim();
+		types[slot] = marker;
+		sizes[slot] = 0;
+		publishOpenSlot();
+	}
+
+	/**
+	 * Wait for a free slot
+	 */
+	private int claim() {
+		if (types == null) {
+			allocateSlots();
+		}
+		final long sequence = published.get();
+		for (int spins = 0; sequence - consumed.get() > mask; spins++) {
+			checkFailure();
+			idle(spins);
+		}
+		openSequence = sequence;
+		return (int) sequence & mask;
+	}
+
+	private void publishOpenSlot() {
+		if (openSequence != -1) {
+			final int slot = (int) openSequence & mask;
+			if (types[slot] >= 0) {
+				sizes[slot] = openSize;
+			}
+			published.lazySet(openSequence + 1);
+			openSequence = -1;
+			if (consumer == null) {
+				startConsumer();
+			} else if (consumerParked) {
+				LockSupport.unpark(consumer);
+			}
+		}
+	}
+
+	private void checkFailure() {
+		if (failure != null) {
+			throw new IllegalStateException("Building the topology failed", failure);
+		}
+	}
+
+	private static void idle(final int spins) {
+		if (spins < SPINS) {
+			return;
+		} else if (spins < SPINS * 2) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+
+	private void consume() {
+		try {
+			long sequence = consumed.get();
+			int spins = 0;
+			while (true) {
+				if (sequence == published.get()) {
+					if (stopping) {
+						return;
+					}
+					if (++spins > SPINS) {
+						consumerParked = true;
+						if (sequence == published.get() && !stopping) {
+							LockSupport.parkNanos(PARK_NANOS * 20);
+						}
+						consumerParked = false;
+					}
+					continue;
+				}
+				spins = 0;
+				final int slot = (int) sequence & mask;
+				final int type = types[slot];
+				if (type == NEXT_GEOMETRIC_OBJECT) {
+					handler.nextGeometricObject();
+				} else if (type == NEXT_INTERIOR) {
+					handler.nextInterior();
+				} else {
+					handler.coordinates2d(coordinates[slot], hashes[slot], sizes[slot], locations[slot], type);
+				}
+				consumed.lazySet(++sequence);
+			}
+		} catch (final Throwable e) {
+			failure = e;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+import static java.lang.Math.abs;
+
+import gnu.trove.TIntArrayList;
+
+/**
+ * Finds the face and the object that contain a point.
+ *
+ * A ray is cast from the point in the direction of the X axis. The first edge
+ * that the ray crosses is searched in the spatial index with a thin window,
+ * which is widened until an edge is found or the window exceeds the envelope
+ * of the topology. The edge bounds the face of the point, which is taken from
+ * the face table. As the sides of the edges are not ordered geometrically,
+ * the objects on both sides of the edge are checked with a ray crossing test
+ * along all their rings.
+ *
+ * The locator reuses its buffers and can be used for many points, but not
+ * concurrently.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class PointLocator {
+
+	private final TopologyBuilder builder;
+	private final EdgeIndex edgeIndex;
+	private final FaceTable faces;
+	private final ObjectEdges objectEdges;
+	private final double maxX;
+	private final double initialWidth;
+	private final TIntArrayList candidates = new TIntArrayList();
+	private final TIntArrayList queue = new TIntArrayList();
+
+	// result of the last query
+	private int edge;
+	private int face;
+	private long object;
+
+	PointLocator(final TopologyBuilder builder, final EdgeIndex edgeIndex, final FaceTable faces,
+			final ObjectEdges objectEdges) {
+		this.builder = builder;
+		this.edgeIndex = edgeIndex;
+		this.faces = faces;
+		this.objectEdges = objectEdges;
+		final double[] envelope = edgeIndex.envelope();
+		this.maxX = envelope[2];
+		// about the width of a cell if the edges were distributed evenly
+		this.initialWidth = Math.max((envelope[2] - envelope[0]) / Math.sqrt(Math.max(edgeIndex.size(), 1)),
+				Double.MIN_NORMAL);
+	}
+
+	/**
+	 * Locate a point
+	 *
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @return false if the point lies outside of all rings
+	 */
+	boolean locate(final double x, final double y) {
+		edge = 0;
+		face = -1;
+		object = 0;
+		if (edgeIndex.size() == 0) {
+			return false;
+		}
+		double nearestX = Double.POSITIVE_INFINITY;
+		for (double width = initialWidth; edge == 0; width *= 2) {
+			candidates.resetQuick();
+			edgeIndex.search(x, y, x + width, y, candidates, queue);
+			for (int i = 0; i < candidates.size(); i++) {
+				final int e = candidates.getQuick(i);
+				final long coordinateIndices = builder.getTopologicalData(e + COORDINATE_OFFSET);
+				final int source = getLeft(coordinateIndices);
+				final int target = getRight(coordinateIndices);
+				final double x1 = builder.getCoordinate(source);
+				final double y1 = builder.getCoordinate(source + 1);
+				final double x2 = builder.getCoordinate(target);
+				final double y2 = builder.getCoordinate(target + 1);
+				if ((y1 > y) != (y2 > y)) {
+					final double crossingX = x1 + (y - y1) * (x2 - x1) / (y2 - y1);
+					if (crossingX >= x && crossingX <= x + width && crossingX < nearestX) {
+						nearestX = crossingX;
+						// direct the edge so that the point is on its left side
+						edge = (x2 - x1) * (y - y1) - (y2 - y1) * (x - x1) >= 0 ? e : -e;
+					}
+				}
+			}
+			if (x + width > maxX) {
+				break;
+			}
+		}
+		if (edge == 0) {
+			return false;
+		}
+
+		// the ring whose interior lies on the left side of the edge
+		final int ring = faces.ring(edge);
+		final int reverseRing = faces.ring(-edge);
+		if (faces.area(ring) > 0) {
+			face = ring;
+		} else if (faces.area(reverseRing) < 0) {
+			face = reverseRing;
+		}
+
+		final int left = builder.getLeftOrRightByIndex(abs(edge), OBJ_OFFSET);
+		final int right = builder.getLeftOrRightByIndex(-abs(edge), OBJ_OFFSET);
+		if (left != 0 && contains(left, x, y)) {
+			object = builder.getTopologicalData(abs(edge) + LEFT_LOCATION_INDEX);
+		} else if (right != 0 && contains(right, x, y)) {
+			object = builder.getTopologicalData(abs(edge) + RIGHT_LOCATION_INDEX);
+		}
+		return true;
+	}
+
+	/**
+	 * Ray crossing test along all rings of an object
+	 */
+	private boolean contains(final int objectId, final double x, final double y) {
+		boolean inside = false;
+		for (int i = objectEdges.firstEdge(objectId); i < objectEdges.endEdge(objectId); i++) {
+			final long coordinateIndices = builder.getTopologicalData(abs(objectEdges.edge(i)) + COORDINATE_OFFSET);
+			final int source = getLeft(coordinateIndices);
+			final int target = getRight(coordinateIndices);
+			final double x1 = builder.getCoordinate(source);
+			final double y1 = builder.getCoordinate(source + 1);
+			final double x2 = builder.getCoordinate(target);
+			final double y2 = builder.getCoordinate(target + 1);
+			if ((y1 > y) != (y2 > y) && x <= x1 + (y - y1) * (x2 - x1) / (y2 - y1)) {
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Get the first edge crossed by the ray of the last located point
+	 *
+	 * @return signed edge index, the point is on the left side, 0 if no edge was found
+	 */
+	int edge() {
+		return edge;
+	}
+
+	/**
+	 * Get the face of the last located point
+	 *
+	 * @return ring in the face table or -1 if no ring encloses the point
+	 */
+	int face() {
+		return face;
+	}
+
+	/**
+	 * Get the object that contains the last located point
+	 *
+	 * @return compressed location of the object or 0 if no object contains the point
+	 */
+	long object() {
+		return object;
+	}
+}
@@ -0,0 +1,365 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import gnu.trove.TDoubleArrayList;
+import gnu.trove.TIntArrayList;
+
+/**
+ * Finds edges that cross each other without a shared node.
+ *
+ * Crossings at shared nodes are detected while the topology is built. Edges
+ * that cross between their nodes are found here in a pass over the built
+ * edges: the extent of the topology is divided into vertical strips, and the
+ * edges are assigned to all strips their X range overlaps, with a counting
+ * sort like in compressed sparse rows. The borders of the strips are placed at
+ * quantiles of the minimum X of the edges, so that clustered data does not put
+ * most edges into a few strips. The quantiles are taken from a histogram of
+ * narrow buckets, and each bucket is mapped to its strip. The strips are processed in parallel.
+ * In each strip, the edges are sorted by their minimum Y coordinate and swept
+ * from bottom to top. Each edge is tested against the edges that are still
+ * active, that is whose maximum Y coordinate has not been passed yet.
+ *
+ * The strips are narrow, so only few edges are active at a time. A crossing
+ * is reported by the strip that contains the crossing point, so crossings of
+ * edges that span several strips are reported once. The results are collected
+ * per strip and returned in the order of the strips, independent of the
+ * scheduling.
+ *
+ * Only proper crossings are reported. Edges that touch or overlap are left
+ * to other checks.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class SegmentIntersections {
+
+	// average number of edges per strip
+	private final static int EDGES_PER_STRIP = 1024;
+
+	// resolution of the strip borders
+	private final static int BUCKETS_PER_STRIP = 64;
+
+	// resolution of the Y sort keys
+	private final static int KEY_BITS = 30;
+
+	private final TopologyBuilder builder;
+	private final double originX;
+	private final double originY;
+	private final double bucketWidth;
+	// strip of each bucket
+	private final int[] bucketStrips;
+	private final double keyStep;
+	private final int[] stripStarts;
+	// edge ordinals of each strip
+	private final int[] stripEdges;
+
+	private SegmentIntersections(final TopologyBuilder builder, final double originX, final double originY,
+			final double bucketWidth, final int[] bucketStrips, final double keyStep, final int[] stripStarts,
+			final int[] stripEdges) {
+		this.builder = builder;
+		this.originX = originX;
+		this.originY = originY;
+		this.bucketWidth = bucketWidth;
+		this.bucketStrips = bucketStrips;
+		this.keyStep = keyStep;
+		this.stripStarts = stripStarts;
+		this.stripEdges = stripEdges;
+	}
+
+	/**
+	 * Assign the edges to the strips
+	 *
+	 * @param builder topology
+	 * @return new instance
+	 */
+	static SegmentIntersections build(final TopologyBuilder builder) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 2; i < builder.internalCoordinateSize(); i += 2) {
+			minX = Math.min(minX, builder.getCoordinate(i));
+			minY = Math.min(minY, builder.getCoordinate(i + 1));
+			maxX = Math.max(maxX, builder.getCoordinate(i));
+			maxY = Math.max(maxY, builder.getCoordinate(i + 1));
+		}
+		final int edges = builder.size();
+		final int buckets = Math.max(1, edges / EDGES_PER_STRIP) * BUCKETS_PER_STRIP;
+		// the buckets are slightly wider, so that the last bucket contains the maximum X
+		final double bucketWidth = Math.max((maxX - minX) * (1 + 1e-9) / buckets, Double.MIN_NORMAL);
+		final double keyStep = Math.max((maxY - minY) / (1 << KEY_BITS), Double.MIN_NORMAL);
+		final int[] bucketStrips = new int[buckets];
+		final SegmentIntersections histogram = new SegmentIntersections(builder, minX, minY, bucketWidth,
+				bucketStrips, keyStep, null, null);
+		// count the edges by the bucket of their minimum X
+		final int[] counts = new int[buckets];
+		for (int o = 1; o <= edges; o++) {
+			counts[histogram.bucket(histogram.minX(o * TOPOLOGY_FIELDS_SIZE))]++;
+		}
+		// start a new strip with the first bucket after each quantile
+		int strip = 0;
+		long counted = 0;
+		for (int b = 0; b < buckets; b++) {
+			if (counted >= (long) (strip + 1) * EDGES_PER_STRIP && counts[b] > 0) {
+				strip++;
+			}
+			bucketStrips[b] = strip;
+			counted += counts[b];
+		}
+		final SegmentIntersections intersections = new SegmentIntersections(builder, minX, minY, bucketWidth,
+				bucketStrips, keyStep, new int[strip + 2], null);
+		return intersections.assign(edges);
+	}
+
+	private SegmentIntersections assign(final int edges) {
+		final int strips = stripStarts.length - 1;
+		final int[] starts = new int[strips + 1];
+		for (int o = 1; o <= edges; o++) {
+			final int e = o * TOPOLOGY_FIELDS_SIZE;
+			for (int s = firstStrip(e); s <= lastStrip(e); s++) {
+				starts[s + 1]++;
+			}
+		}
+		for (int s = 0; s < strips; s++) {
+			starts[s + 1] += starts[s];
+		}
+		final int[] fill = Arrays.copyOf(starts, strips);
+		final int[] assigned = new int[starts[strips]];
+		for (int o = 1; o <= edges; o++) {
+			final int e = o * TOPOLOGY_FIELDS_SIZE;
+			for (int s = firstStrip(e); s <= lastStrip(e); s++) {
+				assigned[fill[s]++] = o;
+			}
+		}
+		return new SegmentIntersections(builder, originX, originY, bucketWidth, bucketStrips, keyStep, starts,
+				assigned);
+	}
+
+	/**
+	 * Get the number of strips
+	 *
+	 * @return number of strips
+	 */
+	int strips() {
+		return stripStarts.length - 1;
+	}
+
+	/**
+	 * Get the number of edges assigned to a strip
+	 *
+	 * @param strip number of the strip
+	 * @return number of edges in the strip
+	 */
+	int stripSize(final int strip) {
+		return stripStarts[strip + 1] - stripStarts[strip];
+	}
+
+	private int bucket(final double x) {
+		return Math.min(Math.max((int) ((x - originX) / bucketWidth), 0), bucketStrips.length - 1);
+	}
+
+	private int strip(final double x) {
+		return bucketStrips[bucket(x)];
+	}
+
+	private double minX(final int e) {
+		final long coordinateIndices = builder.getTopologicalData(e + COORDINATE_OFFSET);
+		return Math.min(builder.getCoordinate(getLeft(coordinateIndices)),
+				builder.getCoordinate(getRight(coordinateIndices)));
+	}
+
+	private int firstStrip(final int e) {
+		return strip(minX(e));
+	}
+
+	private int lastStrip(final int e) {
+		final long coordinateIndices = builder.getTopologicalData(e + COORDINATE_OFFSET);
+		return strip(Math.max(builder.getCoordinate(getLeft(coordinateIndices)),
+				builder.getCoordinate(getRight(coordinateIndices))));
+	}
+
+	/**
+	 * Crossings found in one strip
+	 */
+	private final static class Crossings {
+		// X and Y of each crossing
+		private final TDoubleArrayList points = new TDoubleArrayList();
+		// pairs of edge indices
+		private final TIntArrayList edges = new TIntArrayList();
+	}
+
+	/**
+	 * Find all crossings
+	 *
+	 * @param pool pool used for processing the strips
+	 * @param visitor called for each crossing, in the order of the strips
+	 * @return number of crossings
+	 */
+	int find(final ForkJoinPool pool, final CrossingVisitor visitor) {
+		final Crossings[] results = new Crossings[stripStarts.length - 1];
+		final StripTask task = new StripTask(0, results.length, results);
+		if (results.length > 1 && pool.getParallelism() > 1) {
+			pool.invoke(task);
+		} else {
+			task.compute();
+		}
+		int count = 0;
+		for (final Crossings crossings : results) {
+			for (int i = 0; i < crossings.edges.size(); i += 2) {
+				visitor.crossing(crossings.points.get(i), crossings.points.get(i + 1),
+						crossings.edges.get(i), crossings.edges.get(i + 1));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Receives the crossings
+	 */
+	interface CrossingVisitor {
+		/**
+		 * Called for a crossing
+		 *
+		 * @param x X coordinate of the crossing point
+		 * @param y Y coordinate of the crossing point
+		 * @param edgeIndex index of the edge with the lower index
+		 * @param otherEdgeIndex index of the other edge
+		 */
+		void crossing(final double x, final double y, final int edgeIndex, final int otherEdgeIndex);
+	}
+
+	private final class StripTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final Crossings[] results;
+
+		private StripTask(final int from, final int to, final Crossings[] results) {
+			this.from = from;
+			this.to = to;
+			this.results = results;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1 && getPool() != null) {
+				final int mid = (from + to) >>> 1;
+				invokeAll(new StripTask(from, mid, results), new StripTask(mid, to, results));
+			} else {
+				for (int s = from; s < to; s++) {
+					results[s] = sweep(s);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sweep the edges of a strip from bottom to top
+	 */
+	private Crossings sweep(final int strip) {
+		final Crossings crossings = new Crossings();
+		final int start = stripStarts[strip];
+		final int end = stripStarts[strip + 1];
+		// quantized minimum Y in the upper, edge ordinal in the lower half
+		final long[] keys = new long[end - start];
+		for (int i = start; i < end; i++) {
+			final int e = stripEdges[i] * TOPOLOGY_FIELDS_SIZE;
+			final long coordinateIndices = builder.getTopologicalData(e + COORDINATE_OFFSET);
+			final double y = Math.min(builder.getCoordinate(getLeft(coordinateIndices) + 1),
+					builder.getCoordinate(getRight(coordinateIndices) + 1));
+			keys[i - start] = compress((int) ((y - originY) / keyStep), stripEdges[i]);
+		}
+		Arrays.sort(keys);
+
+		final TIntArrayList active = new TIntArrayList();
+		final TDoubleArrayList activeMaxY = new TDoubleArrayList();
+		for (final long key : keys) {
+			// the edges that follow start at least one key step below this bound
+			final double bound = originY + (getLeft(key) - 1) * keyStep;
+			final int e = getRight(key) * TOPOLOGY_FIELDS_SIZE;
+			int kept = 0;
+			for (int i = 0; i < active.size(); i++) {
+				final int other = active.getQuick(i);
+				final double otherMaxY = activeMaxY.getQuick(i);
+				if (otherMaxY < bound) {
+					continue;
+				}
+				active.setQuick(kept, other);
+				activeMaxY.setQuick(kept++, otherMaxY);
+				test(strip, e, other, crossings);
+			}
+			if (kept < active.size()) {
+				active.remove(kept, active.size() - kept);
+				activeMaxY.remove(kept, activeMaxY.size() - kept);
+			}
+			final long coordinateIndices = builder.getTopologicalData(e + COORDINATE_OFFSET);
+			active.add(e);
+			activeMaxY.add(Math.max(builder.getCoordinate(getLeft(coordinateIndices) + 1),
+					builder.getCoordinate(getRight(coordinateIndices) + 1)));
+		}
+		return crossings;
+	}
+
+	private static double orientation(final double ax, final double ay, final double bx, final double by,
+			final double cx, final double cy) {
+		return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+	}
+
+	private void test(final int strip, final int edge, final int otherEdge, final Crossings crossings) {
+		final int a = Math.min(edge, otherEdge);
+		final int b = Math.max(edge, otherEdge);
+		final long aIndices = builder.getTopologicalData(a + COORDINATE_OFFSET);
+		final long bIndices = builder.getTopologicalData(b + COORDINATE_OFFSET);
+		final double ax1 = builder.getCoordinate(getLeft(aIndices));
+		final double ay1 = builder.getCoordinate(getLeft(aIndices) + 1);
+		final double ax2 = builder.getCoordinate(getRight(aIndices));
+		final double ay2 = builder.getCoordinate(getRight(aIndices) + 1);
+		final double bx1 = builder.getCoordinate(getLeft(bIndices));
+		final double by1 = builder.getCoordinate(getLeft(bIndices) + 1);
+		final double bx2 = builder.getCoordinate(getRight(bIndices));
+		final double by2 = builder.getCoordinate(getRight(bIndices) + 1);
+		if (Math.max(ax1, ax2) < Math.min(bx1, bx2) || Math.max(bx1, bx2) < Math.min(ax1, ax2)) {
+			return;
+		}
+		final double d1 = orientation(ax1, ay1, ax2, ay2, bx1, by1);
+		final double d2 = orientation(ax1, ay1, ax2, ay2, bx2, by2);
+		if (d1 == 0 || d2 == 0 || (d1 > 0) == (d2 > 0)) {
+			return;
+		}
+		final double d3 = orientation(bx1, by1, bx2, by2, ax1, ay1);
+		final double d4 = orientation(bx1, by1, bx2, by2, ax2, ay2);
+		if (d3 == 0 || d4 == 0 || (d3 > 0) == (d4 > 0)) {
+			return;
+		}
+		final double t = d3 / (d3 - d4);
+		final double x = ax1 + t * (ax2 - ax1);
+		if (strip(x) != strip) {
+			return;
+		}
+		crossings.points.add(x);
+		crossings.points.add(ay1 + t * (ay2 - ay1));
+		crossings.edges.add(a);
+		crossings.edges.add(b);
+	}
+}
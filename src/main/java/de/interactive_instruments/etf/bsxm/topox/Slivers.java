@@ -0,0 +1,157 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+
+import gnu.trove.TIntArrayList;
+
+/**
+ * Finds slivers and gaps between nearly coincident edges of different objects.
+ *
+ * The topology only joins edges with exactly the same coordinates. If the
+ * boundaries of two neighbouring objects are digitized separately, their edges
+ * run side by side and enclose thin gaps or overlaps, which are not closed by
+ * edges and therefore not found by the hole detection.
+ *
+ * Each edge is looked up in the spatial index of the edges. For each pair of
+ * edges of different objects, the part of the second edge that runs along the
+ * first edge is determined. If it is longer than the tolerance and both of its
+ * ends are within the tolerance of the first edge, the quadrilateral between
+ * the two edges is reported.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class Slivers {
+
+	/**
+	 * Receives the slivers
+	 */
+	interface SliverVisitor {
+		/**
+		 * Called for a sliver between two edges
+		 *
+		 * @param edgeIndex index of the first edge
+		 * @param otherEdgeIndex index of the second edge, greater than the first one
+		 * @param polygon closed ring of the sliver as X, Y pairs, only valid during the call
+		 * @param area area of the sliver
+		 */
+		void sliver(final int edgeIndex, final int otherEdgeIndex, final double[] polygon, final double area);
+	}
+
+	private Slivers() {}
+
+	/**
+	 * Find the slivers between all pairs of nearly coincident edges of different objects
+	 *
+	 * @param builder topology
+	 * @param edgeIndex spatial index of the edges
+	 * @param tolerance maximum distance between the edges
+	 * @param minArea slivers with an area up to this value are ignored
+	 * @param visitor called for each sliver, in the order of the first edge
+	 * @return number of slivers
+	 */
+	static int find(final TopologyBuilder builder, final EdgeIndex edgeIndex, final double tolerance,
+			final double minArea, final SliverVisitor visitor) {
+		final TIntArrayList candidates = new TIntArrayList();
+		final TIntArrayList queue = new TIntArrayList();
+		final double[] polygon = new double[10];
+		int count = 0;
+		for (int a = TOPOLOGY_FIELDS_SIZE; a < builder.internalTopologicalDataSize(); a += TOPOLOGY_FIELDS_SIZE) {
+			final long aIndices = builder.getTopologicalData(a + COORDINATE_OFFSET);
+			final double ax = builder.getCoordinate(getLeft(aIndices));
+			final double ay = builder.getCoordinate(getLeft(aIndices) + 1);
+			final double adx = builder.getCoordinate(getRight(aIndices)) - ax;
+			final double ady = builder.getCoordinate(getRight(aIndices) + 1) - ay;
+			final double length = Math.sqrt(adx * adx + ady * ady);
+			if (length <= tolerance) {
+				continue;
+			}
+			// unit vector along the first edge
+			final double ux = adx / length;
+			final double uy = ady / length;
+			final long aObjects = builder.getTopologicalData(a + OBJ_OFFSET);
+			candidates.resetQuick();
+			edgeIndex.search(Math.min(ax, ax + adx) - tolerance, Math.min(ay, ay + ady) - tolerance,
+					Math.max(ax, ax + adx) + tolerance, Math.max(ay, ay + ady) + tolerance, candidates, queue);
+			for (int i = 0; i < candidates.size(); i++) {
+				final int b = candidates.getQuick(i);
+				if (b <= a || sharesObject(aObjects, builder.getTopologicalData(b + OBJ_OFFSET))) {
+					continue;
+				}
+				final long bIndices = builder.getTopologicalData(b + COORDINATE_OFFSET);
+				final double bx1 = builder.getCoordinate(getLeft(bIndices)) - ax;
+				final double by1 = builder.getCoordinate(getLeft(bIndices) + 1) - ay;
+				final double bx2 = builder.getCoordinate(getRight(bIndices)) - ax;
+				final double by2 = builder.getCoordinate(getRight(bIndices) + 1) - ay;
+				// positions of the ends of the second edge along the first edge
+				final double s1 = bx1 * ux + by1 * uy;
+				final double s2 = bx2 * ux + by2 * uy;
+				if (s1 == s2) {
+					continue;
+				}
+				final double from = Math.max(0, Math.min(s1, s2));
+				final double to = Math.min(length, Math.max(s1, s2));
+				if (to - from <= tolerance) {
+					continue;
+				}
+				// signed distances of the second edge at both ends of the common part
+				final double d1 = bx1 * uy - by1 * ux;
+				final double d2 = bx2 * uy - by2 * ux;
+				final double dFrom = d1 + (d2 - d1) * (from - s1) / (s2 - s1);
+				final double dTo = d1 + (d2 - d1) * (to - s1) / (s2 - s1);
+				if (Math.abs(dFrom) > tolerance || Math.abs(dTo) > tolerance) {
+					continue;
+				}
+				final double area;
+				if (dFrom * dTo >= 0) {
+					area = (to - from) * Math.abs(dFrom + dTo) / 2;
+				} else {
+					// the edges cross, two triangles
+					area = (to - from) * (dFrom * dFrom + dTo * dTo) / (Math.abs(dFrom) + Math.abs(dTo)) / 2;
+				}
+				if (area <= minArea) {
+					continue;
+				}
+				polygon[0] = ax + ux * from;
+				polygon[1] = ay + uy * from;
+				polygon[2] = ax + ux * to;
+				polygon[3] = ay + uy * to;
+				polygon[4] = polygon[2] + uy * dTo;
+				polygon[5] = polygon[3] - ux * dTo;
+				polygon[6] = polygon[0] + uy * dFrom;
+				polygon[7] = polygon[1] - ux * dFrom;
+				polygon[8] = polygon[0];
+				polygon[9] = polygon[1];
+				visitor.sliver(a, b, polygon, area);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Check if two edges have an object in common, interiors count as their object
+	 */
+	private static boolean sharesObject(final long objects, final long otherObjects) {
+		final int left = Math.abs(getLeft(objects));
+		final int right = Math.abs(getRight(objects));
+		final int otherLeft = Math.abs(getLeft(otherObjects));
+		final int otherRight = Math.abs(getRight(otherObjects));
+		return (left != 0 && (left == otherLeft || left == otherRight))
+				|| (right != 0 && (right == otherLeft || right == otherRight));
+	}
+}
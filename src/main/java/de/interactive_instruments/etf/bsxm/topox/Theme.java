@@ -15,8 +15,18 @@
  */
 package de.interactive_instruments.etf.bsxm.topox;
 
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_UNCOVERED_EDGES;
 import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.FREE_STANDING_SURFACE;
 import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.HOLE_EMPTY_INTERIOR;
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.NODE_ON_EDGE;
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.RING_INTERSECTION;
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.SLIVER;
+
+import java.util.concurrent.ForkJoinPool;
+
+import gnu.trove.TIntArrayList;
+import gnu.trove.TLongArrayList;
+import gnu.trove.TLongHashSet;
 
 /**
  * The Theme object bundles all objects that are used to
@@ -36,29 +46,122 @@ public class Theme {
 
 	final Topology topology;
 	private final TopologyBuilder topologyBuilder;
+	private final HashingSegmentHandler segmentHandler;
+
+	// Number of ring buffer slots and coordinates per slot in pipelined mode
+	private final static int PIPELINE_CAPACITY = 256;
+	private final static int PIPELINE_BATCH_SIZE = 512;
+
+	public final static String HOLES_CHECK = "holes";
+	public final static String FREE_STANDING_SURFACES_CHECK = "free-standing-surfaces";
 
 	public Theme(final String name, final TopologyErrorCollector topologyErrorCollector, final String errorFile,
 			final GeoJsonWriter geoJsonWriter, final TopologyBuilder topologyBuilder) {
+		this(name, topologyErrorCollector, errorFile, geoJsonWriter, topologyBuilder, false);
+	}
+
+	/**
+	 * Creates a new Theme
+	 *
+	 * @param pipelined if true, the topology is built in a separate thread while the calling
+	 *                     thread parses the next posLists. All functions that access the topology
+	 *                     wait until the outstanding segments have been processed.
+	 */
+	public Theme(final String name, final TopologyErrorCollector topologyErrorCollector, final String errorFile,
+			final GeoJsonWriter geoJsonWriter, final TopologyBuilder topologyBuilder, final boolean pipelined) {
 		this.name = name;
 		this.topologyErrorCollector = topologyErrorCollector;
 		this.errorFile = errorFile;
 		this.geoJsonWriter = geoJsonWriter;
 		this.topologyBuilder = topologyBuilder;
 		this.topology = new TopologyStore(topologyBuilder);
-		this.parser = new HashingPosListParser(topologyBuilder);
+		if (pipelined) {
+			this.segmentHandler = new PipelinedSegmentHandler(name, topologyBuilder, PIPELINE_CAPACITY,
+					PIPELINE_BATCH_SIZE);
+		} else {
+			this.segmentHandler = topologyBuilder;
+		}
+		this.parser = new HashingPosListParser(segmentHandler);
 	}
 
 	public void nextInterior() {
-		this.topologyBuilder.nextInterior();
+		this.segmentHandler.nextInterior();
+	}
+
+	/**
+	 * Enable checks of the geometry that are run while the topology is built.
+	 *
+	 * Must be called before the first posList is parsed.
+	 *
+	 * @param minSegmentLength segments shorter than this length are reported, 0 disables the check
+	 * @param spikeAngle vertices where the direction turns back with an angle less than this value
+	 *                   in degrees are reported, 0 disables the check
+	 * @param duplicatePoints report consecutive duplicate points
+	 */
+	public void enableGeometryChecks(final double minSegmentLength, final double spikeAngle,
+			final boolean duplicatePoints) {
+		topologyBuilder.enableGeometryChecks(minSegmentLength, spikeAngle, duplicatePoints);
+	}
+
+	/**
+	 * Enable checks of the rings that are run while the topology is built.
+	 *
+	 * Must be called before the first posList is parsed.
+	 *
+	 * @param orientation report exterior rings that are not oriented counter-clockwise
+	 *                       and interior rings that are not oriented clockwise
+	 * @param closure report rings whose last point is not the first point
+	 */
+	public void enableRingChecks(final boolean orientation, final boolean closure) {
+		topologyBuilder.enableRingChecks(orientation, closure);
+	}
+
+	HashingSegmentHandler segmentHandler() {
+		return segmentHandler;
+	}
+
+	/**
+	 * Wait until all parsed segments have been added to the topology
+	 * and check the last ring, if ring checks are enabled.
+	 *
+	 * Waiting is only required in pipelined mode, where the thread that
+	 * builds the topology is stopped until the next posList is parsed.
+	 */
+	public void sync() {
+		if (segmentHandler instanceof PipelinedSegmentHandler) {
+			((PipelinedSegmentHandler) segmentHandler).sync();
+		}
+		topologyBuilder.finishRing();
+	}
+
+	/**
+	 * Create a set for marking edges of the topology
+	 *
+	 * @return empty set that can hold all edges of the topology
+	 */
+	EdgeBitSet newEdgeBitSet() {
+		return topologyBuilder.newEdgeBitSet();
+	}
+
+	/**
+	 * Add all outstanding segments to the topology, check the last ring, if
+	 * ring checks are enabled, and release the resources used for building the topology.
+	 */
+	public void finish() {
+		if (segmentHandler instanceof PipelinedSegmentHandler) {
+			((PipelinedSegmentHandler) segmentHandler).release();
+		}
+		topologyBuilder.finishRing();
 	}
 
 	public int detectHoles() {
+		sync();
 		int count = 0;
-		for (final Topology.Edge emptyInterior : topology.emptyInteriors()) {
+		for (final Topology.EdgeCursor emptyInterior = topology.emptyInteriorsCursor(); emptyInterior.next();) {
 			count++;
 			topologyErrorCollector.collectError(HOLE_EMPTY_INTERIOR,
-					emptyInterior.source().x(),
-					emptyInterior.source().y(),
+					emptyInterior.x(),
+					emptyInterior.y(),
 					"IS",
 					String.valueOf(emptyInterior.leftObject()));
 		}
@@ -66,24 +169,326 @@ public class Theme {
 	}
 
 	public int detectFreeStandingSurfaces() {
+		sync();
 		int count = 0;
-		for (final Topology.Edge freeStandingSurface : topology.freeStandingSurfaces()) {
+		for (final Topology.EdgeCursor freeStandingSurface = topology.freeStandingSurfacesCursor(); freeStandingSurface
+				.next();) {
 			count++;
 			topologyErrorCollector.collectError(FREE_STANDING_SURFACE,
-					freeStandingSurface.source().x(),
-					freeStandingSurface.source().y(),
+					freeStandingSurface.x(),
+					freeStandingSurface.y(),
 					"IS",
 					String.valueOf(freeStandingSurface.leftObject()));
 		}
 		return count;
 	}
 
+	/**
+	 * Detect edges that cross each other without a shared node. Crossings at
+	 * shared nodes are already reported while the topology is built.
+	 *
+	 * @return number of crossings
+	 */
+	public int detectIntersections() {
+		sync();
+		return SegmentIntersections.build(topologyBuilder).find(ForkJoinPool.commonPool(),
+				(x, y, edgeIndex, otherEdgeIndex) -> topologyErrorCollector.collectError(RING_INTERSECTION,
+						x, y,
+						"IS", String.valueOf(location(edgeIndex)),
+						"CW", String.valueOf(topologyBuilder.getTopologicalData(
+								otherEdgeIndex + TopologyBuilder.LEFT_LOCATION_INDEX)),
+						"CCW", String.valueOf(topologyBuilder.getTopologicalData(
+								otherEdgeIndex + TopologyBuilder.RIGHT_LOCATION_INDEX))));
+	}
+
+	/**
+	 * Detect nodes that lie on the interior of another edge
+	 *
+	 * @param tolerance maximum distance between a node and an edge
+	 * @return number of nodes on edges
+	 */
+	public int detectNodesOnEdges(final double tolerance) {
+		sync();
+		return NodesOnEdges.find(topologyBuilder, ((TopologyStore) topology).edgeIndex(), tolerance,
+				(coordIndex, edgeIndex) -> {
+					final double x = topologyBuilder.getCoordinate(coordIndex);
+					final double y = topologyBuilder.getCoordinate(coordIndex + 1);
+					final int nodeEdgeIndex = Math.abs(topologyBuilder.getTargetEdge(x, y));
+					topologyErrorCollector.collectError(NODE_ON_EDGE,
+							x, y,
+							"IS", String.valueOf(nodeEdgeIndex > 1 ? location(nodeEdgeIndex) : 0),
+							"O", String.valueOf(location(edgeIndex)));
+				});
+	}
+
+	/**
+	 * Detect slivers and gaps between nearly coincident edges of different objects
+	 *
+	 * @param tolerance maximum distance between the edges
+	 * @param minArea slivers with an area up to this value are ignored
+	 * @return number of slivers
+	 */
+	public int detectSlivers(final double tolerance, final double minArea) {
+		sync();
+		return Slivers.find(topologyBuilder, ((TopologyStore) topology).edgeIndex(), tolerance, minArea,
+				(edgeIndex, otherEdgeIndex, polygon, area) -> {
+					final StringBuilder posList = new StringBuilder();
+					for (int i = 0; i < polygon.length; i++) {
+						if (i > 0) {
+							posList.append(' ');
+						}
+						posList.append(polygon[i]);
+					}
+					topologyErrorCollector.collectError(SLIVER,
+							(polygon[0] + polygon[2] + polygon[4] + polygon[6]) / 4,
+							(polygon[1] + polygon[3] + polygon[5] + polygon[7]) / 4,
+							"IS", String.valueOf(location(edgeIndex)),
+							"O", String.valueOf(location(otherEdgeIndex)),
+							"A", String.valueOf(area),
+							"P", posList.toString());
+				});
+	}
+
+	/**
+	 * Detect the edges on the outline of the topology that are not covered by
+	 * boundaries, chained to polylines
+	 *
+	 * @param covered edges that are covered by boundaries
+	 * @return number of polylines
+	 */
+	int detectUncoveredEdges(final EdgeBitSet covered) {
+		sync();
+		return UncoveredEdges.find(topologyBuilder, covered, (firstEdgeIndex, coordinates) -> {
+			final StringBuilder posList = new StringBuilder();
+			for (int i = 0; i < coordinates.size(); i++) {
+				if (i > 0) {
+					posList.append(' ');
+				}
+				posList.append(coordinates.getQuick(i));
+			}
+			topologyErrorCollector.collectError(BOUNDARY_UNCOVERED_EDGES,
+					coordinates.getQuick(0), coordinates.getQuick(1),
+					"IS", String.valueOf(location(Math.abs(firstEdgeIndex))),
+					"P", posList.toString());
+		});
+	}
+
+	/**
+	 * Run several checks in one traversal of the topology. The errors are
+	 * reported in the order of the checks.
+	 *
+	 * @param checks names of the checks: {@link #HOLES_CHECK} or {@link #FREE_STANDING_SURFACES_CHECK}
+	 * @return number of errors and elapsed nanoseconds for each check
+	 * @throws IllegalArgumentException if a check is unknown
+	 */
+	public long[] runChecks(final String... checks) {
+		sync();
+		final TopologyStore store = (TopologyStore) topology;
+		final CheckPipeline pipeline = new CheckPipeline(topologyBuilder, store::faceTable,
+				ForkJoinPool.commonPool(), CheckPipeline.DEFAULT_CHUNK_SIZE);
+		for (final String check : checks) {
+			switch (check) {
+			case HOLES_CHECK:
+				pipeline.add(holesCheck(pipeline.chunks()));
+				break;
+			case FREE_STANDING_SURFACES_CHECK:
+				pipeline.add(freeStandingSurfacesCheck(store, pipeline.chunks()));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown check '" + check + "'");
+			}
+		}
+		return pipeline.run(topologyErrorCollector);
+	}
+
+	private CheckPipeline.Check holesCheck(final int chunks) {
+		final ParallelFaceScanner.Scan scan = new ParallelFaceScanner(topologyBuilder).newEmptyInteriorsScan(chunks);
+		return new CheckPipeline.Check() {
+			@Override
+			public void visit(final int chunk, final int from, final int to,
+					final TopologyErrorCollector errorCollector) {
+				scan.scan(chunk, from, to);
+			}
+
+			@Override
+			public int finish(final TopologyErrorCollector errorCollector) {
+				return collectEdgeErrors(errorCollector, HOLE_EMPTY_INTERIOR, scan.emptyInteriors());
+			}
+		};
+	}
+
+	private CheckPipeline.Check freeStandingSurfacesCheck(final TopologyStore store, final int chunks) {
+		final TIntArrayList[] candidates = new TIntArrayList[chunks];
+		return new CheckPipeline.Check() {
+			private FaceTable faces;
+
+			@Override
+			public void init() {
+				faces = store.faceTable();
+			}
+
+			@Override
+			public void visit(final int chunk, final int from, final int to,
+					final TopologyErrorCollector errorCollector) {
+				// Rings are numbered in the order of their first edges
+				final TIntArrayList chunkCandidates = new TIntArrayList();
+				final int step = TopologyBuilder.TOPOLOGY_FIELDS_SIZE;
+				for (int e = Math.max(step, from); e < to; e += step) {
+					final int ring = faces.ring(e);
+					if (ring != -1 && faces.firstEdge(ring) == e && store.isOuterRingCandidate(faces, ring)) {
+						chunkCandidates.add(ring);
+					}
+				}
+				candidates[chunk] = chunkCandidates;
+			}
+
+			@Override
+			public int finish(final TopologyErrorCollector errorCollector) {
+				final TIntArrayList all = new TIntArrayList();
+				for (final TIntArrayList chunkCandidates : candidates) {
+					all.add(chunkCandidates.toNativeArray());
+				}
+				return collectEdgeErrors(errorCollector, FREE_STANDING_SURFACE, store.findFreeStandingSurfaces(all));
+			}
+		};
+	}
+
+	private int collectEdgeErrors(final TopologyErrorCollector errorCollector, final TopologyErrorType type,
+			final TIntArrayList edges) {
+		for (int i = 0; i < edges.size(); i++) {
+			final int edgeIndex = edges.getQuick(i);
+			final int coordIndex = topologyBuilder.getLeftOrRightByIndex(edgeIndex, TopologyBuilder.COORDINATE_OFFSET);
+			errorCollector.collectError(type,
+					topologyBuilder.getCoordinate(coordIndex),
+					topologyBuilder.getCoordinate(coordIndex + 1),
+					"IS",
+					String.valueOf(topologyBuilder.getTopologicalData(
+							Math.abs(edgeIndex) + TopologyBuilder.LEFT_LOCATION_INDEX)));
+		}
+		return edges.size();
+	}
+
+	private long location(final int edgeIndex) {
+		final long left = topologyBuilder.getTopologicalData(edgeIndex + TopologyBuilder.LEFT_LOCATION_INDEX);
+		return left != 0 ? left
+				: topologyBuilder.getTopologicalData(edgeIndex + TopologyBuilder.RIGHT_LOCATION_INDEX);
+	}
+
+	/**
+	 * Get the objects on both sides of the edges whose envelopes intersect a window
+	 *
+	 * @return distinct compressed object locations
+	 */
+	public long[] objectsInWindow(final double minX, final double minY, final double maxX, final double maxY) {
+		sync();
+		return objects(topology.edges(minX, minY, maxX, maxY));
+	}
+
+	/**
+	 * Get the objects on both sides of the edges that are nearest to a point
+	 *
+	 * @param maxEdges maximum number of edges to consider
+	 * @param maxDistance maximum distance between the point and the edges
+	 * @return distinct compressed object locations, ordered by the distance of their edges
+	 */
+	public long[] objectsNearPoint(final double x, final double y, final int maxEdges, final double maxDistance) {
+		sync();
+		return objects(topology.nearestEdges(x, y, maxEdges, maxDistance));
+	}
+
+	/**
+	 * Snap a point to the nearest node or, if there is no node within the tolerance,
+	 * to the nearest edge
+	 *
+	 * @param tolerance maximum distance between the point and the node or edge, greater than 0
+	 * @return X and Y coordinate of the snapped point or an empty array if there is no node
+	 * or edge within the tolerance
+	 */
+	public double[] snap(final double x, final double y, final double tolerance) {
+		sync();
+		final Topology.Node node = topology.nearestNode(x, y, tolerance);
+		if (node != null) {
+			return new double[]{node.x(), node.y()};
+		}
+		for (final Topology.Edge edge : topology.nearestEdges(x, y, 1, tolerance)) {
+			// project the point onto the edge
+			final double x1 = edge.source().x();
+			final double y1 = edge.source().y();
+			final double dx = edge.target().x() - x1;
+			final double dy = edge.target().y() - y1;
+			final double t = Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / (dx * dx + dy * dy)));
+			return new double[]{x1 + t * dx, y1 + t * dy};
+		}
+		return new double[0];
+	}
+
+	/**
+	 * Get the objects whose surfaces contain a sequence of points
+	 *
+	 * @param coordinates X and Y coordinates of the points
+	 * @return compressed object location for each point, 0 if no object contains the point
+	 */
+	public long[] objectsAt(final double[] coordinates) {
+		sync();
+		return topology.objectsAt(coordinates);
+	}
+
+	/**
+	 * Get the objects that share at least one edge with an object
+	 *
+	 * @param object compressed location of the object or of one of its posLists
+	 * @return compressed object locations
+	 */
+	public long[] neighbours(final long object) {
+		sync();
+		return topology.neighbours(object);
+	}
+
+	/**
+	 * Get the number of edges an object shares with each neighbour
+	 *
+	 * @param object compressed location of the object or of one of its posLists
+	 * @return number of edges, in the order of {@link #neighbours(long)}
+	 */
+	public int[] neighbourEdgeCounts(final long object) {
+		sync();
+		return topology.neighbourEdgeCounts(object);
+	}
+
+	/**
+	 * Get the length of the edges an object shares with each neighbour
+	 *
+	 * @param object compressed location of the object or of one of its posLists
+	 * @return length, in the order of {@link #neighbours(long)}
+	 */
+	public double[] neighbourLengths(final long object) {
+		sync();
+		return topology.neighbourLengths(object);
+	}
+
+	private static long[] objects(final Iterable<Topology.Edge> edges) {
+		final TLongHashSet found = new TLongHashSet();
+		final TLongArrayList objects = new TLongArrayList();
+		for (final Topology.Edge edge : edges) {
+			final long left = edge.leftObject();
+			if (left != 0 && found.add(left)) {
+				objects.add(left);
+			}
+			final long right = edge.rightObject();
+			if (right != 0 && found.add(right)) {
+				objects.add(right);
+			}
+		}
+		return objects.toNativeArray();
+	}
+
 	public TopologyMXBean getMBean() {
 		return (TopologyMXBean) topology;
 	}
 
 	@Override
 	public String toString() {
+		sync();
 		return topologyBuilder.toString();
 	}
 }
@@ -146,6 +146,173 @@ public interface Topology {
 		Edge edge(final Node node);
 	}
 
+	/**
+	 * A reusable position on a directed edge for traversing the topology
+	 * without creating objects.
+	 *
+	 * The source of the current position is the node the cursor is located at,
+	 * the target is the node at the other end of the edge. The move methods
+	 * change the position of the cursor, all other methods only read it.
+	 */
+	interface EdgeCursor {
+
+		/**
+		 * Move to the next edge of the sequence the cursor was created for
+		 *
+		 * @return false if there are no more edges
+		 */
+		boolean next();
+
+		/**
+		 * Move to an edge that starts at a node
+		 *
+		 * @param x X coordinate of the node
+		 * @param y Y coordinate of the node
+		 * @return false if a node with these coordinates does not exist,
+		 * the position is not changed in this case
+		 */
+		boolean moveToNode(final double x, final double y);
+
+		/**
+		 * Move to the edge connecting the source nodes of two positions
+		 *
+		 * @param sourceIndex {@link #index()} of a position at the first node
+		 * @param targetIndex {@link #index()} of a position at the second node
+		 * @return false if the nodes are not connected, the position is
+		 * not changed in this case
+		 */
+		boolean moveToEdge(final int sourceIndex, final int targetIndex);
+
+		/**
+		 * Move to a position that has been returned by {@link #index()} before
+		 *
+		 * @param index position
+		 */
+		void moveTo(final int index);
+
+		/**
+		 * Move to the next edge counter-clockwise around the source node
+		 */
+		void moveSourceCcwNext();
+
+		/**
+		 * Move to the next edge counter-clockwise around the target node.
+		 * Afterwards the previous target node is the source node.
+		 */
+		void moveTargetCcwNext();
+
+		/**
+		 * Swap source and target
+		 */
+		void reverse();
+
+		/**
+		 * Get the current position
+		 *
+		 * @return signed internal edge index
+		 */
+		int index();
+
+		/**
+		 * Get X coordinate of the source node
+		 *
+		 * @return X coordinate
+		 */
+		double x();
+
+		/**
+		 * Get Y coordinate of the source node
+		 *
+		 * @return Y coordinate
+		 */
+		double y();
+
+		/**
+		 * Get X coordinate of the target node
+		 *
+		 * @return X coordinate
+		 */
+		double targetX();
+
+		/**
+		 * Get Y coordinate of the target node
+		 *
+		 * @return Y coordinate
+		 */
+		double targetY();
+
+		/**
+		 * Get the angle of the source node
+		 *
+		 * @return angle in radians
+		 */
+		double sourceAngle();
+
+		/**
+		 * Get the angle of the target node
+		 *
+		 * @return angle in radians
+		 */
+		double targetAngle();
+
+		/**
+		 * Get the internal ID of the object on the left side
+		 *
+		 * @return encoded ID
+		 */
+		int leftInternalObjectId();
+
+		/**
+		 * Get the internal ID of the object on the right side
+		 *
+		 * @return encoded ID
+		 */
+		int rightInternalObjectId();
+
+		/**
+		 * Get the object on the left side
+		 *
+		 * @return object
+		 */
+		long leftObject();
+
+		/**
+		 * Get the object on the right side
+		 *
+		 * @return object
+		 */
+		long rightObject();
+	}
+
+	/**
+	 * Create a cursor that iterates over all edges
+	 *
+	 * @return new cursor
+	 */
+	EdgeCursor edgeCursor();
+
+	/**
+	 * Create a cursor that iterates over the edges that have objects only on one side,
+	 * see {@link #emptyInteriors()}
+	 *
+	 * The topology is not modified, so the method can be called several times and
+	 * concurrently.
+	 *
+	 * @return new cursor
+	 */
+	EdgeCursor emptyInteriorsCursor();
+
+	/**
+	 * Create a cursor that iterates over one edge of each free-standing surface,
+	 * see {@link #freeStandingSurfaces()}
+	 *
+	 * The topology is not modified, so the method can be called several times and
+	 * concurrently.
+	 *
+	 * @return new cursor
+	 */
+	EdgeCursor freeStandingSurfacesCursor();
+
 	/**
 	 * xmin, xmax, ymin, ymax
 	 *
@@ -173,21 +340,168 @@ public interface Topology {
 	 */
 	Node node(final double x, final double y);
 
+	/**
+	 * Get the node that is nearest to a point within a tolerance
+	 *
+	 * A grid over the nodes is built with the first call for a tolerance, so the
+	 * topology must not be changed afterwards.
+	 *
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @param tolerance maximum distance between the point and the node, greater than 0
+	 * @return the node or null if there is no node within the tolerance
+	 */
+	Node nearestNode(final double x, final double y, final double tolerance);
+
+	/**
+	 * Returns all edges whose envelopes intersect a window
+	 *
+	 * The spatial index is built with the first spatial query, so the
+	 * topology must not be changed afterwards.
+	 *
+	 * @param minX minimum X coordinate of the window
+	 * @param minY minimum Y coordinate of the window
+	 * @param maxX maximum X coordinate of the window
+	 * @param maxY maximum Y coordinate of the window
+	 * @return edge iterator
+	 */
+	Iterable<Edge> edges(final double minX, final double minY, final double maxX, final double maxY);
+
+	/**
+	 * Returns the edges that are nearest to a point, ordered by their distance
+	 *
+	 * The spatial index is built with the first spatial query, so the
+	 * topology must not be changed afterwards.
+	 *
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @param maxResults maximum number of returned edges
+	 * @param maxDistance maximum distance between the point and the edges
+	 * @return edge iterator
+	 */
+	Iterable<Edge> nearestEdges(final double x, final double y, final int maxResults, final double maxDistance);
+
+	/**
+	 * Get the number of connected components
+	 *
+	 * The components are determined with the first call, so the
+	 * topology must not be changed afterwards.
+	 *
+	 * @return number of components
+	 */
+	int componentCount();
+
+	/**
+	 * Get the number of edges in a connected component
+	 *
+	 * @param component component, from 0 to componentCount() - 1
+	 * @return number of edges
+	 */
+	int componentSize(final int component);
+
+	/**
+	 * Get the edge with the lowest index in a connected component
+	 *
+	 * @param component component, from 0 to componentCount() - 1
+	 * @return edge
+	 */
+	Edge componentEdge(final int component);
+
+	/**
+	 * Get the object whose surface contains a point
+	 *
+	 * The spatial index, the face table and the edges of the objects are
+	 * built with the first call, so the topology must not be changed afterwards.
+	 *
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @return compressed location of the object or 0 if no object contains the point
+	 */
+	long objectAt(final double x, final double y);
+
+	/**
+	 * Get the objects whose surfaces contain a sequence of points
+	 *
+	 * @param coordinates X and Y coordinates of the points
+	 * @return compressed location of the object for each point, 0 if no object contains the point
+	 */
+	long[] objectsAt(final double[] coordinates);
+
+	/**
+	 * Get the face that contains a point
+	 *
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @return first edge of the face ring, which can be walked with {@link Edge#targetCcwNext()},
+	 * or NULL if no ring encloses the point
+	 */
+	Edge faceAt(final double x, final double y);
+
+	/**
+	 * Returns the edges of a geometric object, directed so that the object is
+	 * on the right side. The neighbour on the left side is 0 for edges that are
+	 * not shared with another object.
+	 *
+	 * The edges of all objects are collected with the first call, so the
+	 * topology must not be changed afterwards.
+	 *
+	 * @param internalObjectId internal ID of the object
+	 * @return edge iterator
+	 */
+	Iterable<Edge> objectEdges(final int internalObjectId);
+
+	/**
+	 * Get the length of the edges two geometric objects share
+	 *
+	 * @param internalObjectId internal ID of the object
+	 * @param otherInternalObjectId internal ID of the other object
+	 * @return length or 0 if the objects are not neighbours
+	 */
+	double sharedLength(final int internalObjectId, final int otherInternalObjectId);
+
+	/**
+	 * Get the objects that share at least one edge with an object
+	 *
+	 * The neighbours are determined with the first call, so the
+	 * topology must not be changed afterwards.
+	 *
+	 * @param object compressed location of the object or of one of its posLists
+	 * @return compressed location of a posList of each neighbour
+	 */
+	long[] neighbours(final long object);
+
+	/**
+	 * Get the number of edges an object shares with each neighbour
+	 *
+	 * @param object compressed location of the object or of one of its posLists
+	 * @return number of edges, in the order of {@link #neighbours(long)}
+	 */
+	int[] neighbourEdgeCounts(final long object);
+
+	/**
+	 * Get the length of the edges an object shares with each neighbour
+	 *
+	 * @param object compressed location of the object or of one of its posLists
+	 * @return length, in the order of {@link #neighbours(long)}
+	 */
+	double[] neighbourLengths(final long object);
+
 	/**
 	 * Returns edges that have objects only on one side
 	 *
-	 * Contract: This method may only be called once.
-	 * The result should be cached by the caller.
+	 * The topology is not modified, so the method can be called several times and
+	 * concurrently. The result should be cached by the caller.
 	 *
 	 * @return edge iterator
 	 */
 	Iterable<Edge> emptyInteriors();
 
 	/**
-	 * Returns edges of free-standing surfaces
+	 * Returns one edge of the outer ring of each free-standing surface, that is of each
+	 * connected component except the one that encloses the largest area
 	 *
-	 * Contract: This method may only be called once.
-	 * The result should be cached by the caller.
+	 * The topology is not modified, so the method can be called several times and
+	 * concurrently. The result should be cached by the caller.
 	 *
 	 * @return edge iterator
 	 */
@@ -170,6 +170,26 @@ public class TopologyBuilder implements HashingSegmentHandler {
 	private double previousY;
 	private long previousHash;
 
+	// Optional geometry checks that are run while the segments are added
+	private boolean geometryChecks;
+	private double minSegmentLengthSquared;
+	private double spikeAngle;
+	private boolean duplicatePointCheck;
+	// Direction of the previous segment, NaN at the start of a ring
+	private double previousDx = Double.NaN;
+	private double previousDy;
+
+	// Optional checks of the current ring, accumulated while the segments are added
+	private boolean orientationCheck;
+	private boolean closureCheck;
+	private boolean ringStarted;
+	private double ringFirstX;
+	private double ringFirstY;
+	private long ringFirstHash;
+	private long ringLocation;
+	// Twice the signed area of the ring, relative to the first point
+	private double ringArea;
+
 	public TopologyBuilder(final String themeName,
 			final TopologyErrorCollector errorCollector,
 			final int initialEdgeCapacity) {
@@ -610,13 +630,161 @@ public class TopologyBuilder implements HashingSegmentHandler {
 	@Override
 	public void coordinate2d(final double x, final double y, final long hash, final long compressedLocation, final int ignore) {
 		if (previousHash != 0 && previousHash != hash) {
+			if (geometryChecks) {
+				checkSegment(x, y, compressedLocation);
+			}
 			createEdgeOrSetObject(x, y, hash, compressedLocation);
+		} else if (geometryChecks) {
+			checkDuplicateOrStart(x, y, hash, compressedLocation);
 		}
 		previousX = x;
 		previousY = y;
 		previousHash = hash;
 	}
 
+	@Override
+	public void coordinates2d(final double[] coordinates, final long[] hashes, final int size,
+			final long compressedLocation, final int ignore) {
+		// Same as coordinate2d() but without the megamorphic call per coordinate.
+		// Consecutive duplicates are skipped by the hash comparison.
+		for (int i = 0, c = 0; i < size; i++, c += 2) {
+			final long hash = hashes[i];
+			if (previousHash != 0 && previousHash != hash) {
+				if (geometryChecks) {
+					checkSegment(coordinates[c], coordinates[c + 1], compressedLocation);
+				}
+				createEdgeOrSetObject(coordinates[c], coordinates[c + 1], hash, compressedLocation);
+			} else if (geometryChecks) {
+				checkDuplicateOrStart(coordinates[c], coordinates[c + 1], hash, compressedLocation);
+			}
+			previousX = coordinates[c];
+			previousY = coordinates[c + 1];
+			previousHash = hash;
+		}
+	}
+
+	/**
+	 * Enable checks of the geometry that are run while the segments are added.
+	 *
+	 * Must be called before the first coordinates are added.
+	 *
+	 * @param minSegmentLength segments shorter than this length are reported, 0 disables the check
+	 * @param spikeAngle vertices where the direction turns back with an angle less than this value
+	 *                   in degrees are reported, 0 disables the check
+	 * @param duplicatePoints report consecutive duplicate points
+	 */
+	public void enableGeometryChecks(final double minSegmentLength, final double spikeAngle,
+			final boolean duplicatePoints) {
+		this.minSegmentLengthSquared = minSegmentLength * minSegmentLength;
+		this.spikeAngle = Math.toRadians(spikeAngle);
+		this.duplicatePointCheck = duplicatePoints;
+		updateGeometryChecks();
+	}
+
+	/**
+	 * Enable checks of the rings that are run while the segments are added.
+	 * A ring is checked when the next interior or geometric object starts.
+	 *
+	 * Exterior rings must be oriented counter-clockwise and interior rings
+	 * clockwise, assuming that the first axis points east and the second north.
+	 *
+	 * Must be called before the first coordinates are added.
+	 *
+	 * @param orientation report rings with a wrong orientation
+	 * @param closure report rings whose last point is not the first point
+	 */
+	public void enableRingChecks(final boolean orientation, final boolean closure) {
+		this.orientationCheck = orientation;
+		this.closureCheck = closure;
+		updateGeometryChecks();
+	}
+
+	private void updateGeometryChecks() {
+		this.geometryChecks = minSegmentLengthSquared > 0 || spikeAngle > 0 || duplicatePointCheck
+				|| orientationCheck || closureCheck;
+	}
+
+	@Override
+	public boolean acceptsDuplicatePoints() {
+		return duplicatePointCheck;
+	}
+
+	/**
+	 * Check the segment from the previous coordinates to x, y
+	 */
+	private void checkSegment(final double x, final double y, final long compressedLocation) {
+		final double dx = x - previousX;
+		final double dy = y - previousY;
+		final double lengthSquared = dx * dx + dy * dy;
+		if (lengthSquared < minSegmentLengthSquared) {
+			errorCollector.collectError(SHORT_SEGMENT,
+					previousX, previousY,
+					"IS", String.valueOf(compressedLocation),
+					"X2", String.valueOf(x), "Y2", String.valueOf(y),
+					"L", String.valueOf(Math.sqrt(lengthSquared)));
+		}
+		if (spikeAngle > 0 && !Double.isNaN(previousDx)) {
+			// Angle between the reversed previous segment and this segment
+			final double angle = atan2(abs(previousDx * dy - previousDy * dx), -(previousDx * dx + previousDy * dy));
+			if (angle < spikeAngle) {
+				errorCollector.collectError(SPIKE,
+						previousX, previousY,
+						"IS", String.valueOf(compressedLocation),
+						"A", String.valueOf(Math.toDegrees(angle)));
+			}
+		}
+		if (orientationCheck) {
+			ringArea += (previousX - ringFirstX) * (y - ringFirstY) - (x - ringFirstX) * (previousY - ringFirstY);
+		}
+		previousDx = dx;
+		previousDy = dy;
+	}
+
+	/**
+	 * Report a duplicate of the previous coordinates or reset the segment
+	 * direction at the first coordinates of a ring
+	 */
+	private void checkDuplicateOrStart(final double x, final double y, final long hash,
+			final long compressedLocation) {
+		if (previousHash == 0) {
+			previousDx = Double.NaN;
+			if (!ringStarted) {
+				ringStarted = true;
+				ringFirstX = x;
+				ringFirstY = y;
+				ringFirstHash = hash;
+				ringLocation = compressedLocation;
+				ringArea = 0;
+			}
+		} else if (duplicatePointCheck) {
+			errorCollector.collectError(DUPLICATE_POINT,
+					x, y,
+					"IS", String.valueOf(compressedLocation));
+		}
+	}
+
+	/**
+	 * Check the orientation and closure of the current ring, if ring checks are enabled
+	 */
+	void finishRing() {
+		if (!ringStarted) {
+			return;
+		}
+		ringStarted = false;
+		if (closureCheck && previousHash != ringFirstHash) {
+			errorCollector.collectError(RING_NOT_CLOSED,
+					ringFirstX, ringFirstY,
+					"IS", String.valueOf(ringLocation),
+					"X2", String.valueOf(previousX), "Y2", String.valueOf(previousY));
+		}
+		if (orientationCheck && ringArea != 0 && (ringArea > 0) != exterior) {
+			errorCollector.collectError(
+					exterior ? OUTER_RING_INVALID_CURVE_ORIENTATION : INNER_RING_INVALID_CURVE_ORIENTATION,
+					ringFirstX, ringFirstY,
+					"IS", String.valueOf(ringLocation));
+		}
+	}
+
 	private void createEdgeOrSetObject(final double x, final double y, final long hash, final long compressedLocation) {
 		++objectsProcessed;
 
@@ -924,87 +1092,73 @@ public class TopologyBuilder implements HashingSegmentHandler {
 		return coordinates.getQuick(coordinateIndex);
 	}
 
-	private boolean checkIfInteriorEdgeAndMark(final int edgeIndex) {
-		if (topology.getQuick(abs(edgeIndex) + RIGHT_LOCATION_INDEX) == 0) {
-			final long obj = topology.getQuick(edgeIndex + OBJ_OFFSET);
-			// Check if this is an exterior edge
-			if (getLeft(obj) < 0) {
-				// mark it
-				topology.setQuick(edgeIndex + RIGHT_LOCATION_INDEX, Integer.MIN_VALUE);
-				return true;
-			}
-		}
-		return false;
+	/**
+	 * Create a set for marking visited edges
+	 *
+	 * @return empty set that can hold all edges of the topology
+	 */
+	EdgeBitSet newEdgeBitSet() {
+		return new EdgeBitSet(topology.size() / TOPOLOGY_FIELDS_SIZE);
 	}
 
-	int findNextEmptyInterior(final int currentPos) {
-		final int maxEdgeSearch = 100_000;
-		for (int i = currentPos; i < topology.size(); i += TOPOLOGY_FIELDS_SIZE) {
-			// Check if an object is set on the right side
-			if (checkIfInteriorEdgeAndMark(i)) {
-				// Check if this is an interior edge
-				final int emptyInteriorEdge = i;
-				int next = getLeftOrRightByIndex(-emptyInteriorEdge, CCWI_OFFSET);
-				int steps = 0;
-				for (; steps < maxEdgeSearch && emptyInteriorEdge != next && -emptyInteriorEdge != next &&
-						checkIfInteriorEdgeAndMark(next); steps++) {
-					next = getLeftOrRightByIndex(-next, CCWI_OFFSET);
-				}
-				return emptyInteriorEdge;
-			}
-		}
-		return topology.size();
+	/**
+	 * Check if the edge has no object on the right side and an interior on the left side
+	 *
+	 * @param edgeIndex edge index
+	 * @return true if this is an edge of an empty interior
+	 */
+	boolean isEmptyInteriorEdge(final int edgeIndex) {
+		final int index = abs(edgeIndex);
+		return topology.getQuick(index + RIGHT_LOCATION_INDEX) == 0 &&
+				getLeft(topology.getQuick(index + OBJ_OFFSET)) < 0;
 	}
 
 	/**
-	 * Check if edge is an exterior edge without an object on the right side and mark the
-	 * edge by setting a max value on the right side.
+	 * Check if the edge has no object on the right side and an exterior on the left side
 	 *
 	 * @param edgeIndex edge index
-	 * @return true if edge is an exterior edge without an object on the right side
+	 * @return true if this is an outer edge of a free-standing surface
 	 */
-	private boolean checkIfOutsideExteriorEdgeAndMark(final int edgeIndex) {
-		if (topology.getQuick(abs(edgeIndex) + RIGHT_LOCATION_INDEX) == 0) {
-			final long obj = topology.getQuick(edgeIndex + OBJ_OFFSET);
-			// Check if this is an exterior edge
-			if (getLeft(obj) > 0) {
-				// mark it
-				topology.setQuick(edgeIndex + RIGHT_LOCATION_INDEX, Integer.MIN_VALUE);
-				return true;
-			}
+	boolean isOutsideExteriorEdge(final int edgeIndex) {
+		final int index = abs(edgeIndex);
+		return topology.getQuick(index + RIGHT_LOCATION_INDEX) == 0 &&
+				getLeft(topology.getQuick(index + OBJ_OFFSET)) > 0;
+	}
+
+	private boolean checkIfInteriorEdgeAndMark(final int edgeIndex, final EdgeBitSet visited) {
+		if (!visited.get(edgeIndex) && isEmptyInteriorEdge(edgeIndex)) {
+			// mark it
+			visited.set(edgeIndex);
+			return true;
 		}
 		return false;
 	}
 
 	/**
-	 * Find free standing edges in the topological data strcuture
+	 * Find the next edge that has no object on the right side and mark the edges of
+	 * the ring as visited.
 	 *
-	 * @param firstFoundFreeStandingSurfaceEdges array for adding the first edge of the free standing surface
-	 * @param freeStandingSurfaceEdgeSize edge count of the free standing surface
+	 * @param currentPos edge index to start the search from
+	 * @param visited edges that are skipped, the ring edges are added
+	 * @return edge index or the size of the topological data if no edge has been found
 	 */
-	void findFreeStandingSurfaces(final TIntArrayList firstFoundFreeStandingSurfaceEdges,
-			final TIntArrayList freeStandingSurfaceEdgeSize) {
-		final int maxEdgeSearch = 1_000_000;
-
-		for (int i = TOPOLOGY_FIELDS_SIZE; i < topology.size(); i += TOPOLOGY_FIELDS_SIZE) {
+	int findNextEmptyInterior(final int currentPos, final EdgeBitSet visited) {
+		final int maxEdgeSearch = 100_000;
+		for (int i = currentPos; i < topology.size(); i += TOPOLOGY_FIELDS_SIZE) {
 			// Check if an object is set on the right side
-			if (checkIfOutsideExteriorEdgeAndMark(i)) {
-				// Found the first exterior edge without anything on the right side.
-				// Mark this edge and begin to iterate along the edges until we either
-				// return to this edge or find an edge that has something on the right side.
-				final int freestandingSurfaceEdge = i;
-				int next = getLeftOrRightByIndex(-freestandingSurfaceEdge, CCWI_OFFSET);
+			if (checkIfInteriorEdgeAndMark(i, visited)) {
+				// Check if this is an interior edge
+				final int emptyInteriorEdge = i;
+				int next = getLeftOrRightByIndex(-emptyInteriorEdge, CCWI_OFFSET);
 				int steps = 0;
-				for (; steps < maxEdgeSearch && freestandingSurfaceEdge != next && -freestandingSurfaceEdge != next &&
-						checkIfOutsideExteriorEdgeAndMark(next); steps++) {
+				for (; steps < maxEdgeSearch && emptyInteriorEdge != next && -emptyInteriorEdge != next &&
+						checkIfInteriorEdgeAndMark(next, visited); steps++) {
 					next = getLeftOrRightByIndex(-next, CCWI_OFFSET);
 				}
-				if (steps > 1) {
-					firstFoundFreeStandingSurfaceEdges.add(freestandingSurfaceEdge);
-					freeStandingSurfaceEdgeSize.add(steps);
-				}
+				return emptyInteriorEdge;
 			}
 		}
+		return topology.size();
 	}
 
 	static double getSourceAngle(final TLongArrayList topology, final int index) {
@@ -1125,6 +1279,7 @@ public class TopologyBuilder implements HashingSegmentHandler {
 	 */
 	@Override
 	public void nextGeometricObject() {
+		finishRing();
 		++objectId;
 		previousHash = 0;
 		previousEdgeIndex = 0;
@@ -1134,7 +1289,9 @@ public class TopologyBuilder implements HashingSegmentHandler {
 	/**
 	 * Switch the boundary to interior
 	 */
+	@Override
 	public void nextInterior() {
+		finishRing();
 		previousHash = 0;
 		previousEdgeIndex = 0;
 		exterior = false;
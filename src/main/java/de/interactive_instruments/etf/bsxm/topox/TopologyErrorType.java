@@ -65,6 +65,105 @@ enum TopologyErrorType {
 	 */
 	FREE_STANDING_SURFACE,
 
+	/**
+	 * Node on edge
+	 *
+	 * A node of one object lies on the interior of an edge of another
+	 * object, which has no node there.
+	 *
+	 * Outputs:
+	 * - X, Y for the node
+	 * - IS for the object of the node
+	 * - O for the object of the edge
+	 */
+	NODE_ON_EDGE,
+
+	/**
+	 * Sliver or gap
+	 *
+	 * Two edges of different objects run side by side within a tolerance
+	 * and enclose a thin gap or overlap.
+	 *
+	 * Outputs:
+	 * - X, Y for the center of the sliver
+	 * - IS for the object of the first edge
+	 * - O for the object of the second edge
+	 * - A for the area of the sliver
+	 * - P for the closed ring of the sliver as coordinate list
+	 */
+	SLIVER,
+
+	/**
+	 * Short segment
+	 *
+	 * A segment is shorter than the minimum length of the geometry checks.
+	 *
+	 * Outputs:
+	 * - X, Y for the start point of the segment
+	 * - IS for the object of the segment
+	 * - X2, Y2 for the end point of the segment
+	 * - L for the length of the segment
+	 */
+	SHORT_SEGMENT,
+
+	/**
+	 * Spike
+	 *
+	 * The direction of two consecutive segments turns back with an angle
+	 * less than the spike angle of the geometry checks.
+	 *
+	 * Outputs:
+	 * - X, Y for the vertex of the spike
+	 * - IS for the object of the segments
+	 * - A for the angle between the segments in degrees
+	 */
+	SPIKE,
+
+	/**
+	 * Duplicate point
+	 *
+	 * A point is repeated consecutively.
+	 *
+	 * Outputs:
+	 * - X, Y for the point
+	 * - IS for the object of the point
+	 */
+	DUPLICATE_POINT,
+
+	/**
+	 * The curve orientation of the outer ring is invalid
+	 *
+	 * The exterior ring is oriented clockwise.
+	 *
+	 * Outputs:
+	 * - X, Y for the first point of the ring
+	 * - IS for the object of the ring
+	 */
+	OUTER_RING_INVALID_CURVE_ORIENTATION,
+
+	/**
+	 * The curve orientation of an inner ring is invalid
+	 *
+	 * The interior ring is oriented counter-clockwise.
+	 *
+	 * Outputs:
+	 * - X, Y for the first point of the ring
+	 * - IS for the object of the ring
+	 */
+	INNER_RING_INVALID_CURVE_ORIENTATION,
+
+	/**
+	 * Ring not closed
+	 *
+	 * The last point of a ring is not the first point.
+	 *
+	 * Outputs:
+	 * - X, Y for the first point of the ring
+	 * - IS for the object of the ring
+	 * - X2, Y2 for the last point of the ring
+	 */
+	RING_NOT_CLOSED,
+
 	/**
 	 * Detached boundary point
 	 *
@@ -90,13 +189,46 @@ enum TopologyErrorType {
 	 */
 	BOUNDARY_EDGE_INVALID,
 
-	//////////////////////////////////////////////////////////////////////////
-	// Deprecated and removed later
 	/**
-	 * The curve orientation of the outer ring is invalid
+	 * Boundary point on an edge
+	 *
+	 * A boundary point was defined that does not match a node
+	 * but lies on an edge within the tolerance of the boundary check.
+	 *
+	 * Outputs:
+	 * - X, Y for the point of failure
+	 * - IS for the object that defined the boundary
 	 */
-	OUTER_RING_INVALID_CURVE_ORIENTATION,
+	BOUNDARY_POINT_ON_EDGE,
 
+	/**
+	 * Overlapping boundaries
+	 *
+	 * A boundary edge has already been passed by another boundary
+	 * of the same boundary check.
+	 *
+	 * Outputs:
+	 * - X, Y for the point of failure
+	 * - IS for the object that defined the boundary
+	 * - X2, Y2 for the second point of failure
+	 */
+	BOUNDARY_OVERLAP,
+
+	/**
+	 * Uncovered outline
+	 *
+	 * Edges on the outline of the topology, with an object on only
+	 * one side, are not covered by a boundary.
+	 *
+	 * Outputs:
+	 * - X, Y for the first point of the uncovered edges
+	 * - IS for the object of the first edge
+	 * - P for the uncovered edges as coordinate list
+	 */
+	BOUNDARY_UNCOVERED_EDGES,
+
+	//////////////////////////////////////////////////////////////////////////
+	// Deprecated and removed later
 	/**
 	 * Self intersection of the inner ring
 	 */
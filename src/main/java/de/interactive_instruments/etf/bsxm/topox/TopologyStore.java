@@ -22,9 +22,13 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 
 import de.interactive_instruments.SUtils;
+import gnu.trove.TDoubleObjectHashMap;
 import gnu.trove.TIntArrayList;
+import gnu.trove.TLongHashingStrategy;
+import gnu.trove.TLongIntHashMap;
 
 /**
  * Query topology data
@@ -77,12 +81,7 @@ class TopologyStore implements Topology, TopologyMXBean {
 
 		@Override
 		public long rightObject() {
-			final long right = builder.getTopologicalData(abs(edgeIndex) + RIGHT_LOCATION_INDEX);
-			if (right == Integer.MIN_VALUE) {
-				// check if this is a free-standing surface mark
-				return 0;
-			}
-			return right;
+			return builder.getTopologicalData(abs(edgeIndex) + RIGHT_LOCATION_INDEX);
 		}
 
 		@Override
@@ -157,12 +156,251 @@ class TopologyStore implements Topology, TopologyMXBean {
 		}
 	}
 
+	private final class Cursor implements Topology.EdgeCursor {
+
+		// Sequences the cursor iterates over with next()
+		private final static int ALL_EDGES = 0;
+		private final static int EDGE_LIST = 1;
+		private final static int EMPTY_INTERIORS = 2;
+
+		private final int sequence;
+		private final TIntArrayList edgeList;
+		// Visited edges of the EMPTY_INTERIORS sequence
+		private EdgeBitSet visited;
+		private int sequencePos;
+		private int edgeIndex;
+
+		private Cursor(final int sequence, final TIntArrayList edgeList) {
+			this.sequence = sequence;
+			this.edgeList = edgeList;
+		}
+
+		@Override
+		public boolean next() {
+			switch (sequence) {
+			case ALL_EDGES:
+				sequencePos += TOPOLOGY_FIELDS_SIZE;
+				break;
+			case EDGE_LIST:
+				if (sequencePos == edgeList.size()) {
+					return false;
+				}
+				edgeIndex = edgeList.getQuick(sequencePos++);
+				return true;
+			default:
+				if (visited == null) {
+					visited = builder.newEdgeBitSet();
+				}
+				sequencePos = builder.findNextEmptyInterior(sequencePos + TOPOLOGY_FIELDS_SIZE, visited);
+			}
+			if (sequencePos < builder.internalTopologicalDataSize()) {
+				edgeIndex = sequencePos;
+				return true;
+			}
+			sequencePos = builder.internalTopologicalDataSize();
+			return false;
+		}
+
+		@Override
+		public boolean moveToNode(final double x, final double y) {
+			final int index = builder.getTargetEdge(x, y);
+			if (index == -1 || index == 0) {
+				return false;
+			}
+			edgeIndex = index;
+			return true;
+		}
+
+		@Override
+		public boolean moveToEdge(final int sourceIndex, final int targetIndex) {
+			final int index = findEdgeIndex(sourceIndex, targetIndex);
+			if (index == 0) {
+				return false;
+			}
+			edgeIndex = index;
+			return true;
+		}
+
+		@Override
+		public void moveTo(final int index) {
+			edgeIndex = index;
+		}
+
+		@Override
+		public void moveSourceCcwNext() {
+			edgeIndex = builder.getLeftOrRightByIndex(edgeIndex, CCWI_OFFSET);
+		}
+
+		@Override
+		public void moveTargetCcwNext() {
+			edgeIndex = builder.getLeftOrRightByIndex(-edgeIndex, CCWI_OFFSET);
+		}
+
+		@Override
+		public void reverse() {
+			edgeIndex = -edgeIndex;
+		}
+
+		@Override
+		public int index() {
+			return edgeIndex;
+		}
+
+		@Override
+		public double x() {
+			return builder.getCoordinate(builder.getLeftOrRightByIndex(edgeIndex, COORDINATE_OFFSET));
+		}
+
+		@Override
+		public double y() {
+			return builder.getCoordinate(builder.getLeftOrRightByIndex(edgeIndex, COORDINATE_OFFSET) + 1);
+		}
+
+		@Override
+		public double targetX() {
+			return builder.getCoordinate(builder.getLeftOrRightByIndex(-edgeIndex, COORDINATE_OFFSET));
+		}
+
+		@Override
+		public double targetY() {
+			return builder.getCoordinate(builder.getLeftOrRightByIndex(-edgeIndex, COORDINATE_OFFSET) + 1);
+		}
+
+		@Override
+		public double sourceAngle() {
+			return builder.getAngleByIndex(edgeIndex);
+		}
+
+		@Override
+		public double targetAngle() {
+			return builder.getAngleByIndex(-edgeIndex);
+		}
+
+		@Override
+		public int leftInternalObjectId() {
+			return builder.getLeftOrRightByIndex(edgeIndex, OBJ_OFFSET);
+		}
+
+		@Override
+		public int rightInternalObjectId() {
+			return builder.getLeftOrRightByIndex(-edgeIndex, OBJ_OFFSET);
+		}
+
+		@Override
+		public long leftObject() {
+			return builder.getTopologicalData(abs(edgeIndex) + LEFT_LOCATION_INDEX);
+		}
+
+		@Override
+		public long rightObject() {
+			return builder.getTopologicalData(abs(edgeIndex) + RIGHT_LOCATION_INDEX);
+		}
+
+		@Override
+		public String toString() {
+			return x() + " " + y() + " -> " + targetX() + " " + targetY() + " @ " + edgeIndex;
+		}
+	}
+
 	private TopologyBuilder builder;
 
+	// Number of edges and objects the cached indices below have been built for
+	private int cachedEdges = -1;
+	private int cachedObjects = -1;
+
+	// Spatial index, built with the first spatial query
+	private EdgeIndex edgeIndex;
+
+	// Rings of the topology, built on first use
+	private FaceTable faceTable;
+
+	// Connected components, built on first use
+	private ConnectedComponents components;
+
+	// Neighbours of the objects, built on first use
+	private ObjectAdjacency objectAdjacency;
+
+	// Edges of the objects, built on first use
+	private ObjectEdges objectEdges;
+
+	// Grids over the nodes by their tolerance, built on first use
+	private final TDoubleObjectHashMap<NodeGrid> nodeGrids = new TDoubleObjectHashMap<>();
+
+	// Edges by their node pairs, built on first use
+	private volatile EndpointIndex endpointIndex;
+
 	public TopologyStore(final TopologyBuilder builder) {
 		this.builder = builder;
 	}
 
+	synchronized EdgeIndex edgeIndex() {
+		dropCachesIfGrown();
+		if (edgeIndex == null) {
+			edgeIndex = EdgeIndex.build(builder);
+		}
+		return edgeIndex;
+	}
+
+	synchronized FaceTable faceTable() {
+		dropCachesIfGrown();
+		if (faceTable == null) {
+			final ParallelFaceScanner scanner = new ParallelFaceScanner(builder);
+			faceTable = scanner.isParallel() ? scanner.faceTable() : FaceTable.build(builder);
+		}
+		return faceTable;
+	}
+
+	synchronized ConnectedComponents components() {
+		dropCachesIfGrown();
+		if (components == null) {
+			components = ConnectedComponents.build(builder, ForkJoinPool.commonPool());
+		}
+		return components;
+	}
+
+	synchronized ObjectAdjacency objectAdjacency() {
+		dropCachesIfGrown();
+		if (objectAdjacency == null) {
+			objectAdjacency = ObjectAdjacency.build(builder);
+		}
+		return objectAdjacency;
+	}
+
+	synchronized ObjectEdges objectEdges() {
+		dropCachesIfGrown();
+		if (objectEdges == null) {
+			objectEdges = ObjectEdges.build(builder);
+		}
+		return objectEdges;
+	}
+
+	synchronized NodeGrid nodeGrid(final double tolerance) {
+		dropCachesIfGrown();
+		NodeGrid nodeGrid = nodeGrids.get(tolerance);
+		if (nodeGrid == null) {
+			nodeGrid = NodeGrid.build(builder, tolerance);
+			nodeGrids.put(tolerance, nodeGrid);
+		}
+		return nodeGrid;
+	}
+
+	/**
+	 * Drop the cached indices if edges or objects have been added to the topology
+	 * since they have been built
+	 */
+	private void dropCachesIfGrown() {
+		if (cachedEdges != builder.size() || cachedObjects != builder.internalGetObjectsProcessed()) {
+			edgeIndex = null;
+			faceTable = null;
+			components = null;
+			objectAdjacency = null;
+			objectEdges = null;
+			nodeGrids.clear();
+			cachedEdges = builder.size();
+			cachedObjects = builder.internalGetObjectsProcessed();
+		}
+	}
+
 	int size() {
 		return builder.size();
 	}
@@ -199,32 +437,86 @@ class TopologyStore implements Topology, TopologyMXBean {
 	}
 
 	private Edge edgeByIndex(final int sourceEdgeIndex, final int targetEdgeIndex) {
-		if (sourceEdgeIndex == -targetEdgeIndex) {
-			return new FlyweightEdge(targetEdgeIndex);
-		} else {
-			// Use the coordinate indices for comparison
-			final int sourceCoordIndex = builder.getLeftOrRightByIndex(sourceEdgeIndex, COORDINATE_OFFSET);
-			final int targetCoordIndex = builder.getLeftOrRightByIndex(targetEdgeIndex, COORDINATE_OFFSET);
+		final int edgeIndex = findEdgeIndex(sourceEdgeIndex, targetEdgeIndex);
+		return edgeIndex != 0 ? new FlyweightEdge(edgeIndex) : null;
+	}
 
-			int ccwNext = sourceEdgeIndex;
-			int ccwNextSourceCoordIndex = builder.getLeftOrRightByIndex(ccwNext, COORDINATE_OFFSET);
-			int ccwNextTargetCoordIndex = builder.getLeftOrRightByIndex(-ccwNext, COORDINATE_OFFSET);
+	/**
+	 * Find the edge between two nodes
+	 *
+	 * @return signed edge index or 0 if the nodes are not connected
+	 */
+	private int findEdgeIndex(final int sourceEdgeIndex, final int targetEdgeIndex) {
+		if (sourceEdgeIndex == -targetEdgeIndex) {
+			return targetEdgeIndex;
+		} else if (sourceEdgeIndex == -1 || sourceEdgeIndex == 0 || targetEdgeIndex == -1 || targetEdgeIndex == 0) {
+			return 0;
+		}
+		// Use the coordinate indices for comparison
+		final int sourceCoordIndex = builder.getLeftOrRightByIndex(sourceEdgeIndex, COORDINATE_OFFSET);
+		final int targetCoordIndex = builder.getLeftOrRightByIndex(targetEdgeIndex, COORDINATE_OFFSET);
+		final int edgeIndex = endpointIndex().get(endpointKey(sourceCoordIndex, targetCoordIndex));
+		if (edgeIndex == 0) {
+			return 0;
+		}
+		// An edge that starts at the source node is returned reversed
+		return getLeft(builder.getTopologicalData(edgeIndex + COORDINATE_OFFSET)) == sourceCoordIndex ? -edgeIndex
+				: edgeIndex;
+	}
 
-			int i = 0;
+	private static long endpointKey(final int coordIndex1, final int coordIndex2) {
+		return coordIndex1 < coordIndex2 ? compress(coordIndex1, coordIndex2) : compress(coordIndex2, coordIndex1);
+	}
 
-			while (++i < 360) {
-				if (ccwNextSourceCoordIndex == sourceCoordIndex && ccwNextTargetCoordIndex == targetCoordIndex) {
-					return new FlyweightEdge(-ccwNext);
-				} else if (ccwNextSourceCoordIndex == targetCoordIndex && ccwNextTargetCoordIndex == sourceCoordIndex) {
-					return new FlyweightEdge(ccwNext);
-				}
+	/**
+	 * Edges by their node pairs
+	 */
+	private static final class EndpointIndex {
+		// The default hash of Trove xors both halves of the key, which
+		// collides for pairs of small coordinate indices
+		private static final TLongHashingStrategy ENDPOINT_HASHING = value -> (int) ((value * 0x9E3779B97F4A7C15L) >>> 32);
+
+		private final TLongIntHashMap edgesByEndpoints;
+		// Number of edges in the index
+		private volatile int edges;
+
+		private EndpointIndex(final TopologyBuilder builder) {
+			this.edgesByEndpoints = new TLongIntHashMap(builder.size() * 2, ENDPOINT_HASHING);
+			addNewEdges(builder);
+		}
 
-				ccwNext = builder.getLeftOrRightByIndex(ccwNext, CCWI_OFFSET);
-				ccwNextSourceCoordIndex = builder.getLeftOrRightByIndex(ccwNext, COORDINATE_OFFSET);
-				ccwNextTargetCoordIndex = builder.getLeftOrRightByIndex(-ccwNext, COORDINATE_OFFSET);
+		/**
+		 * Add the edges that have been created since the last call. The nodes
+		 * of an edge do not change, so the existing entries stay valid.
+		 */
+		private void addNewEdges(final TopologyBuilder builder) {
+			final int end = builder.internalTopologicalDataSize();
+			for (int e = (edges + 1) * TOPOLOGY_FIELDS_SIZE; e < end; e += TOPOLOGY_FIELDS_SIZE) {
+				final long coordinateIndices = builder.getTopologicalData(e + COORDINATE_OFFSET);
+				edgesByEndpoints.put(endpointKey(getLeft(coordinateIndices), getRight(coordinateIndices)), e);
+			}
+			edges = builder.size();
+		}
+	}
 
+	/**
+	 * Get the index of the edges by their node pairs. Edges that have been
+	 * added since the last call are added to the index.
+	 *
+	 * @return map of the ordered coordinate indices to the edge index
+	 */
+	private TLongIntHashMap endpointIndex() {
+		final EndpointIndex current = endpointIndex;
+		if (current != null && current.edges == builder.size()) {
+			return current.edgesByEndpoints;
+		}
+		synchronized (this) {
+			if (endpointIndex == null) {
+				endpointIndex = new EndpointIndex(builder);
+			} else if (endpointIndex.edges != builder.size()) {
+				endpointIndex.addNewEdges(builder);
 			}
-			return null;
+			return endpointIndex.edgesByEndpoints;
 		}
 	}
 
@@ -238,10 +530,63 @@ class TopologyStore implements Topology, TopologyMXBean {
 		}
 	}
 
+	@Override
+	public Node nearestNode(final double x, final double y, final double tolerance) {
+		final int coordIndex = nodeGrid(tolerance).nearest(x, y);
+		if (coordIndex == 0) {
+			return null;
+		}
+		return node(builder.getCoordinate(coordIndex), builder.getCoordinate(coordIndex + 1));
+	}
+
+	@Override
+	public Iterable<Edge> edges(final double minX, final double minY, final double maxX, final double maxY) {
+		final TIntArrayList result = new TIntArrayList();
+		edgeIndex().search(minX, minY, maxX, maxY, result);
+		return edges(result);
+	}
+
+	@Override
+	public Iterable<Edge> nearestEdges(final double x, final double y, final int maxResults, final double maxDistance) {
+		final TIntArrayList result = new TIntArrayList();
+		edgeIndex().nearest(x, y, maxResults, maxDistance, this::edgeDistanceSq, result);
+		return edges(result);
+	}
+
+	private double edgeDistanceSq(final int edgeIndex, final double x, final double y) {
+		final long coordinateIndices = builder.getTopologicalData(edgeIndex + COORDINATE_OFFSET);
+		final int source = getLeft(coordinateIndices);
+		final int target = getRight(coordinateIndices);
+		return EdgeIndex.segmentDistanceSq(x, y,
+				builder.getCoordinate(source), builder.getCoordinate(source + 1),
+				builder.getCoordinate(target), builder.getCoordinate(target + 1));
+	}
+
+	private Iterable<Edge> edges(final TIntArrayList edgeIndices) {
+		return () -> new Iterator<Edge>() {
+			int currentPos = 0;
+
+			@Override
+			public boolean hasNext() {
+				return currentPos < edgeIndices.size();
+			}
+
+			@Override
+			public Edge next() {
+				return new FlyweightEdge(edgeIndices.get(currentPos++));
+			}
+		};
+	}
+
 	@Override
 	public Iterable<Edge> emptyInteriors() {
+		final ParallelFaceScanner scanner = new ParallelFaceScanner(builder);
+		if (scanner.isParallel()) {
+			return edges(scanner.emptyInteriors());
+		}
 		return () -> new Iterator<Edge>() {
-			int currentPos = builder.findNextEmptyInterior(TOPOLOGY_FIELDS_SIZE);
+			final EdgeBitSet visited = builder.newEdgeBitSet();
+			int currentPos = builder.findNextEmptyInterior(TOPOLOGY_FIELDS_SIZE, visited);
 
 			@Override
 			public boolean hasNext() {
@@ -251,7 +596,7 @@ class TopologyStore implements Topology, TopologyMXBean {
 			@Override
 			public Edge next() {
 				final Edge edge = new FlyweightEdge(currentPos);
-				currentPos = builder.findNextEmptyInterior(currentPos + TOPOLOGY_FIELDS_SIZE);
+				currentPos = builder.findNextEmptyInterior(currentPos + TOPOLOGY_FIELDS_SIZE, visited);
 				return edge;
 			}
 		};
@@ -259,48 +604,220 @@ class TopologyStore implements Topology, TopologyMXBean {
 
 	@Override
 	public Iterable<Edge> freeStandingSurfaces() {
+		return edges(findFreeStandingSurfaces());
+	}
 
-		// The edge index of the found free-standing surfaces
-		final TIntArrayList firstFoundFreeStandingSurfaceEdges = new TIntArrayList();
-
-		// The size of length of the free-standing surfaces
-		// It is naively assumed that the surface with the most edges is the larger one.
-		final TIntArrayList freeStandingSurfaceEdgeSize = new TIntArrayList();
-
-		builder.findFreeStandingSurfaces(firstFoundFreeStandingSurfaceEdges, freeStandingSurfaceEdgeSize);
-		if (freeStandingSurfaceEdgeSize.size() > 0) {
-			int maxPos = 0;
-			int max = freeStandingSurfaceEdgeSize.get(maxPos);
-			if (firstFoundFreeStandingSurfaceEdges.size() > 1) {
-				// find max
-				for (int i = 1; i < freeStandingSurfaceEdgeSize.size(); i++) {
-					final int cur = freeStandingSurfaceEdgeSize.get(i);
-					if (cur > max) {
-						max = cur;
-						maxPos = i;
-					}
-				}
-			}
-			firstFoundFreeStandingSurfaceEdges.remove(maxPos);
+	@Override
+	public EdgeCursor edgeCursor() {
+		return new Cursor(Cursor.ALL_EDGES, null);
+	}
+
+	@Override
+	public EdgeCursor emptyInteriorsCursor() {
+		final ParallelFaceScanner scanner = new ParallelFaceScanner(builder);
+		if (scanner.isParallel()) {
+			return new Cursor(Cursor.EDGE_LIST, scanner.emptyInteriors());
+		}
+		return new Cursor(Cursor.EMPTY_INTERIORS, null);
+	}
+
+	@Override
+	public EdgeCursor freeStandingSurfacesCursor() {
+		return new Cursor(Cursor.EDGE_LIST, findFreeStandingSurfaces());
+	}
+
+	@Override
+	public int componentCount() {
+		return components().size();
+	}
+
+	@Override
+	public int componentSize(final int component) {
+		return components().edgeCount(component);
+	}
+
+	@Override
+	public Edge componentEdge(final int component) {
+		return new FlyweightEdge(components().representativeEdge(component));
+	}
+
+	private PointLocator pointLocator() {
+		return new PointLocator(builder, edgeIndex(), faceTable(), objectEdges());
+	}
+
+	@Override
+	public long objectAt(final double x, final double y) {
+		final PointLocator locator = pointLocator();
+		locator.locate(x, y);
+		return locator.object();
+	}
+
+	@Override
+	public long[] objectsAt(final double[] coordinates) {
+		final PointLocator locator = pointLocator();
+		final long[] objects = new long[coordinates.length / 2];
+		for (int i = 0; i < objects.length; i++) {
+			locator.locate(coordinates[i * 2], coordinates[i * 2 + 1]);
+			objects[i] = locator.object();
 		}
+		return objects;
+	}
 
-		final int maxPos = firstFoundFreeStandingSurfaceEdges.size();
+	@Override
+	public Edge faceAt(final double x, final double y) {
+		final PointLocator locator = pointLocator();
+		if (!locator.locate(x, y) || locator.face() == -1) {
+			return null;
+		}
+		return new FlyweightEdge(faceTable().firstEdge(locator.face()));
+	}
 
+	@Override
+	public Iterable<Edge> objectEdges(final int internalObjectId) {
+		final ObjectEdges index = objectEdges();
+		if (abs(internalObjectId) >= index.size()) {
+			return edges(new TIntArrayList(0));
+		}
+		final int end = index.endEdge(internalObjectId);
 		return () -> new Iterator<Edge>() {
-			int currentPos = 0;
+			int currentPos = index.firstEdge(internalObjectId);
 
 			@Override
 			public boolean hasNext() {
-				return currentPos < maxPos;
+				return currentPos < end;
 			}
 
 			@Override
 			public Edge next() {
-				return new FlyweightEdge(firstFoundFreeStandingSurfaceEdges.get(currentPos++));
+				return new FlyweightEdge(index.edge(currentPos++));
 			}
 		};
 	}
 
+	@Override
+	public double sharedLength(final int internalObjectId, final int otherInternalObjectId) {
+		final ObjectEdges index = objectEdges();
+		if (abs(internalObjectId) >= index.size()) {
+			return 0;
+		}
+		double length = 0;
+		for (int i = index.firstEdge(internalObjectId); i < index.endEdge(internalObjectId); i++) {
+			final int edgeIndex = index.edge(i);
+			final int neighbour = builder.getLeftOrRightByIndex(edgeIndex, OBJ_OFFSET);
+			if (neighbour != 0 && abs(neighbour) == abs(otherInternalObjectId)) {
+				final int source = builder.getLeftOrRightByIndex(edgeIndex, COORDINATE_OFFSET);
+				final int target = builder.getLeftOrRightByIndex(-edgeIndex, COORDINATE_OFFSET);
+				length += Math.hypot(builder.getCoordinate(target) - builder.getCoordinate(source),
+						builder.getCoordinate(target + 1) - builder.getCoordinate(source + 1));
+			}
+		}
+		return length;
+	}
+
+	@Override
+	public long[] neighbours(final long object) {
+		final ObjectAdjacency adjacency = objectAdjacency();
+		final int id = adjacency.id(object);
+		if (id == -1) {
+			return new long[0];
+		}
+		final long[] neighbours = new long[adjacency.endNeighbour(id) - adjacency.firstNeighbour(id)];
+		for (int i = 0; i < neighbours.length; i++) {
+			neighbours[i] = adjacency.location(adjacency.neighbour(adjacency.firstNeighbour(id) + i));
+		}
+		return neighbours;
+	}
+
+	@Override
+	public int[] neighbourEdgeCounts(final long object) {
+		final ObjectAdjacency adjacency = objectAdjacency();
+		final int id = adjacency.id(object);
+		if (id == -1) {
+			return new int[0];
+		}
+		final int[] edgeCounts = new int[adjacency.endNeighbour(id) - adjacency.firstNeighbour(id)];
+		for (int i = 0; i < edgeCounts.length; i++) {
+			edgeCounts[i] = adjacency.edgeCount(adjacency.firstNeighbour(id) + i);
+		}
+		return edgeCounts;
+	}
+
+	@Override
+	public double[] neighbourLengths(final long object) {
+		final ObjectAdjacency adjacency = objectAdjacency();
+		final int id = adjacency.id(object);
+		if (id == -1) {
+			return new double[0];
+		}
+		final double[] lengths = new double[adjacency.endNeighbour(id) - adjacency.firstNeighbour(id)];
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = adjacency.length(adjacency.firstNeighbour(id) + i);
+		}
+		return lengths;
+	}
+
+	/**
+	 * Find all rings that have no object on the outside, except the outer
+	 * border of the topology
+	 *
+	 * @return the lowest edge index of each ring, in ascending order
+	 */
+	private TIntArrayList findFreeStandingSurfaces() {
+		final FaceTable faces = faceTable();
+		final TIntArrayList candidates = new TIntArrayList();
+		for (int ring = 0; ring < faces.size(); ring++) {
+			if (isOuterRingCandidate(faces, ring)) {
+				candidates.add(ring);
+			}
+		}
+		return findFreeStandingSurfaces(candidates);
+	}
+
+	/**
+	 * Check if a ring has no object on the outside and can be the outer ring of
+	 * a connected component
+	 *
+	 * @param faces face table of the topology
+	 * @param ring ring
+	 * @return true if the ring is a candidate
+	 */
+	boolean isOuterRingCandidate(final FaceTable faces, final int ring) {
+		final int firstEdge = faces.firstEdge(ring);
+		return firstEdge > 0 && faces.edgeCount(ring) > 2 && builder.isOutsideExteriorEdge(firstEdge);
+	}
+
+	/**
+	 * Find all rings that have no object on the outside, except the outer
+	 * border of the topology. These are the outer rings of the connected
+	 * components that are not part of the outer border and the empty areas
+	 * that are enclosed by several objects.
+	 *
+	 * @param candidates all rings that are outer ring candidates, in ascending order
+	 * @return the lowest edge index of each ring, in ascending order
+	 */
+	TIntArrayList findFreeStandingSurfaces(final TIntArrayList candidates) {
+		final FaceTable faces = faceTable();
+
+		// The outer border of the topology encloses the largest area
+		int outerBorder = -1;
+		for (int i = 0; i < candidates.size(); i++) {
+			final int ring = candidates.getQuick(i);
+			if (outerBorder == -1 || Math.abs(faces.area(ring)) > Math.abs(faces.area(outerBorder))) {
+				outerBorder = ring;
+			}
+		}
+
+		final TIntArrayList firstFoundFreeStandingSurfaceEdges = new TIntArrayList(candidates.size());
+		for (int i = 0; i < candidates.size(); i++) {
+			final int ring = candidates.getQuick(i);
+			if (ring != outerBorder) {
+				firstFoundFreeStandingSurfaceEdges.add(faces.firstEdge(ring));
+			}
+		}
+		firstFoundFreeStandingSurfaceEdges.sort();
+		return firstFoundFreeStandingSurfaceEdges;
+	}
+
 	@Override
 	public int getCurrentObjectId() {
 		return builder.internalGetCurrentObjectId();
@@ -331,7 +848,7 @@ class TopologyStore implements Topology, TopologyMXBean {
 		return builder.internalGetLookupErrors();
 	}
 
-	private static void addEdgeInformation(final StringBuilder builder, final Edge edge) {
+	private static void addEdgeInformation(final StringBuilder builder, final EdgeCursor edge) {
 		builder.append(edge.toString());
 		builder.append(", sourceAngle = ");
 		builder.append(Math.toDegrees(edge.sourceAngle()));
@@ -343,37 +860,53 @@ class TopologyStore implements Topology, TopologyMXBean {
 		builder.append(edge.rightObject());
 	}
 
+	/**
+	 * Add the information of all edges counter-clockwise around the source node of the cursor,
+	 * starting with the next edge after the current one
+	 */
+	private static void addCcwEdgesInformation(final StringBuilder builder, final EdgeCursor cursor) {
+		final int start = cursor.index();
+		cursor.moveSourceCcwNext();
+		for (int i = 0; i < 360 && cursor.index() != start && cursor.index() != 0; i++) {
+			addEdgeInformation(builder, cursor);
+			builder.append(SUtils.ENDL);
+			cursor.moveSourceCcwNext();
+		}
+		cursor.moveTo(start);
+	}
+
 	@Override
 	public String getEdgesAtPoint(final double x, final double y) {
-		final Node node = node(x, y);
-		final Edge edge = node.anEdge();
+		final EdgeCursor cursor = edgeCursor();
+		if (!cursor.moveToNode(x, y)) {
+			return "Node not found";
+		}
 		final StringBuilder outputInfo = new StringBuilder();
-		addEdgeInformation(outputInfo, edge);
+		addEdgeInformation(outputInfo, cursor);
 		outputInfo.append(SUtils.ENDL);
-		for (Edge next = edge.sourceCcwNext(); next != edge; next = next.sourceCcwNext()) {
-			addEdgeInformation(outputInfo, next);
-			outputInfo.append(SUtils.ENDL);
-		}
+		addCcwEdgesInformation(outputInfo, cursor);
 		return outputInfo.toString();
 	}
 
 	@Override
 	public String getEdge(final double x1, final double y1, final double x2, final double y2) {
-		final Edge edge = edge(x1, y1, x2, y2);
+		final EdgeCursor cursor = edgeCursor();
+		if (!cursor.moveToNode(x2, y2)) {
+			return "Node not found";
+		}
+		final int targetIndex = cursor.index();
+		if (!cursor.moveToNode(x1, y1) || !cursor.moveToEdge(cursor.index(), targetIndex)) {
+			return "Edge not found";
+		}
 		final StringBuilder outputInfo = new StringBuilder();
-		addEdgeInformation(outputInfo, edge);
+		addEdgeInformation(outputInfo, cursor);
 		outputInfo.append(SUtils.ENDL);
 		outputInfo.append("Origin:");
-		for (Edge next = edge.sourceCcwNext(); next != edge; next = next.sourceCcwNext()) {
-			addEdgeInformation(outputInfo, next);
-			outputInfo.append(SUtils.ENDL);
-		}
+		addCcwEdgesInformation(outputInfo, cursor);
 		outputInfo.append(SUtils.ENDL);
 		outputInfo.append("Target:");
-		for (Edge next = edge.targetCcwNext(); next != edge; next = next.targetCcwNext()) {
-			addEdgeInformation(outputInfo, next);
-			outputInfo.append(SUtils.ENDL);
-		}
+		cursor.reverse();
+		addCcwEdgesInformation(outputInfo, cursor);
 		return outputInfo.toString();
 	}
 
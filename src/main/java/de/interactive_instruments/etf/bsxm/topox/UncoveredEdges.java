@@ -0,0 +1,142 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+
+import gnu.trove.TDoubleArrayList;
+
+/**
+ * Finds the edges on the outline of a topology that are not covered by
+ * boundaries and chains them to polylines.
+ *
+ * An edge lies on the outline if there is an object on only one of its
+ * sides. A polyline is continued at a node if exactly one other uncovered
+ * outline edge is connected to the node. Open polylines start at their end
+ * nodes; the remaining edges form closed polylines, which are walked in a
+ * second pass. Each edge is visited once.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class UncoveredEdges {
+
+	/**
+	 * Receives the polylines
+	 */
+	interface PolylineVisitor {
+		/**
+		 * Called for a polyline
+		 *
+		 * @param firstEdgeIndex signed index of the first edge, in the direction of the polyline
+		 * @param coordinates X, Y pairs of the polyline, closed polylines end with their first point
+		 */
+		void polyline(final int firstEdgeIndex, final TDoubleArrayList coordinates);
+	}
+
+	private final TopologyBuilder builder;
+	private final EdgeBitSet covered;
+	private final EdgeBitSet visited;
+	private final TDoubleArrayList coordinates = new TDoubleArrayList();
+
+	private UncoveredEdges(final TopologyBuilder builder, final EdgeBitSet covered) {
+		this.builder = builder;
+		this.covered = covered;
+		this.visited = builder.newEdgeBitSet();
+	}
+
+	/**
+	 * Chain the uncovered outline edges to polylines
+	 *
+	 * @param builder topology
+	 * @param covered edges that are covered by boundaries
+	 * @param visitor called for each polyline
+	 * @return number of polylines
+	 */
+	static int find(final TopologyBuilder builder, final EdgeBitSet covered, final PolylineVisitor visitor) {
+		final UncoveredEdges uncoveredEdges = new UncoveredEdges(builder, covered);
+		final int size = builder.internalTopologicalDataSize();
+		int count = 0;
+		// open polylines, started at the nodes where they end
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < size; e += TOPOLOGY_FIELDS_SIZE) {
+			if (uncoveredEdges.isUncovered(e) && !uncoveredEdges.visited.get(e)) {
+				if (uncoveredEdges.next(-e) == 0) {
+					uncoveredEdges.walk(e, visitor);
+					count++;
+				} else if (uncoveredEdges.next(e) == 0) {
+					uncoveredEdges.walk(-e, visitor);
+					count++;
+				}
+			}
+		}
+		// closed polylines
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < size; e += TOPOLOGY_FIELDS_SIZE) {
+			if (uncoveredEdges.isUncovered(e) && !uncoveredEdges.visited.get(e)) {
+				uncoveredEdges.walk(e, visitor);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private boolean isUncovered(final int edgeIndex) {
+		if (covered.get(edgeIndex)) {
+			return false;
+		}
+		final long objects = builder.getTopologicalData(Math.abs(edgeIndex) + OBJ_OFFSET);
+		return (getLeft(objects) == 0) != (getRight(objects) == 0);
+	}
+
+	/**
+	 * Get the uncovered edge that continues a polyline at the target node of an edge
+	 *
+	 * @param edgeIndex signed edge index
+	 * @return signed index of the next edge, starting at the target node, or 0
+	 *            if not exactly one other uncovered edge is connected to the node
+	 */
+	private int next(final int edgeIndex) {
+		final int start = -edgeIndex;
+		int other = 0;
+		int count = 0;
+		int current = start;
+		for (int steps = 0; steps <= builder.size(); steps++) {
+			if (isUncovered(current)) {
+				if (current != start) {
+					other = current;
+				}
+				count++;
+			}
+			current = builder.getLeftOrRightByIndex(current, CCWI_OFFSET);
+			if (current == start || current == 0) {
+				break;
+			}
+		}
+		return count == 2 ? other : 0;
+	}
+
+	private void walk(final int firstEdgeIndex, final PolylineVisitor visitor) {
+		coordinates.resetQuick();
+		addCoordinate(builder.getLeftOrRightByIndex(firstEdgeIndex, COORDINATE_OFFSET));
+		for (int e = firstEdgeIndex; e != 0 && visited.add(e); e = next(e)) {
+			addCoordinate(builder.getLeftOrRightByIndex(-e, COORDINATE_OFFSET));
+		}
+		visitor.polyline(firstEdgeIndex, coordinates);
+	}
+
+	private void addCoordinate(final int coordinateIndex) {
+		coordinates.add(builder.getCoordinate(coordinateIndex));
+		coordinates.add(builder.getCoordinate(coordinateIndex + 1));
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_OVERLAP;
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_POINT_DETACHED;
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_POINT_ON_EDGE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class BoundaryBuilderTest {
+
+	private final static double X = TestTopologies.ORIGIN_X;
+	private final static double Y = TestTopologies.ORIGIN_Y;
+
+	// the cell at 10, 0 of the grid, shifted by a millimetre
+	private final static String SHIFTED_CELL = (X + 10.001) + " " + (Y + 0.001) + " " + (X + 20.001) + " "
+			+ (Y + 0.001) + " " + (X + 20.001) + " " + (Y + 10.001) + " " + (X + 10.001) + " " + (Y + 10.001) + " "
+			+ (X + 10.001) + " " + (Y + 0.001);
+
+	private static TestTopologies.ErrorTypes check(final double tolerance, final String posList) {
+		final TestTopologies.ErrorTypes errors = new TestTopologies.ErrorTypes();
+		final Theme theme = new Theme("Test", errors, null, null,
+				TestTopologies.grid(4, new TestTopologies.ErrorTypes()));
+		final BoundaryBuilder boundary = new BoundaryBuilder(theme, tolerance);
+		boundary.parser.nextGeometricObject();
+		boundary.parser.parseDirectPositions(posList, false, 1, 2);
+		return errors;
+	}
+
+	@Test
+	public void testExactMatch() {
+		assertEquals(Collections.emptyList(), check(0, TestTopologies.square(10, 0, 10, true)).types);
+	}
+
+	@Test
+	public void testSnapToNodes() {
+		assertEquals(Collections.nCopies(5, BOUNDARY_POINT_DETACHED), check(0, SHIFTED_CELL).types);
+		assertEquals(Collections.emptyList(), check(0.01, SHIFTED_CELL).types);
+	}
+
+	@Test
+	public void testPointOnEdge() {
+		// a point in the middle of the bottom edge and a point inside the cell
+		final String posList = (X + 10) + " " + Y + " " + (X + 15) + " " + (Y + 0.002) + " " + (X + 15) + " "
+				+ (Y + 1.5);
+		assertEquals(Arrays.asList(BOUNDARY_POINT_ON_EDGE, BOUNDARY_POINT_DETACHED), check(0.01, posList).types);
+	}
+
+	@Test
+	public void testOverlap() {
+		final TestTopologies.ErrorTypes errors = new TestTopologies.ErrorTypes();
+		final Theme theme = new Theme("Test", errors, null, null,
+				TestTopologies.grid(4, new TestTopologies.ErrorTypes()));
+		final BoundaryBuilder boundary = new BoundaryBuilder(theme);
+		boundary.parser.nextGeometricObject();
+		boundary.parser.parseDirectPositions(TestTopologies.square(10, 0, 10, true), false, 1, 2);
+		assertEquals(4, boundary.coveredEdges());
+		// the neighbour shares one edge
+		boundary.parser.nextGeometricObject();
+		boundary.parser.parseDirectPositions(TestTopologies.square(20, 0, 10, false), false, 2, 2);
+		assertEquals(Collections.singletonList(BOUNDARY_OVERLAP), errors.types);
+		assertEquals(7, boundary.coveredEdges());
+	}
+
+	@Test
+	public void testTopologyGrown() {
+		final TestTopologies.ErrorTypes errors = new TestTopologies.ErrorTypes();
+		final Theme theme = new Theme("Test", errors, null, null,
+				TestTopologies.grid(4, new TestTopologies.ErrorTypes()));
+		final BoundaryBuilder boundary = new BoundaryBuilder(theme);
+		// a surface with more edges than the grid, parsed after the boundary builder has been created
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i <= 200; i++) {
+			final double angle = 2 * Math.PI * (i % 200) / 200;
+			sb.append(X + 1000 + 100 * Math.cos(angle)).append(' ').append(Y + 100 * Math.sin(angle)).append(' ');
+		}
+		theme.parser.nextGeometricObject();
+		theme.parser.parseDirectPositions(sb.toString(), false, 1, 2);
+		theme.parser.nextGeometricObject();
+		boundary.parser.nextGeometricObject();
+		boundary.parser.parseDirectPositions(sb.toString(), false, 1, 2);
+		assertEquals(Collections.emptyList(), errors.types);
+		assertEquals(200, boundary.coveredEdges());
+	}
+
+	@Test
+	public void testSnap() {
+		final Theme theme = new Theme("Test", new TestTopologies.ErrorTypes(), null, null,
+				TestTopologies.grid(4, new TestTopologies.ErrorTypes()));
+		assertArrayEquals(new double[]{X + 10, Y}, theme.snap(X + 10.001, Y - 0.002, 0.01), 1e-9);
+		assertArrayEquals(new double[]{X + 15, Y}, theme.snap(X + 15, Y + 0.002, 0.01), 1e-9);
+		assertTrue(theme.snap(X + 15, Y + 1.5, 0.01).length == 0);
+		// one grid per tolerance
+		final TopologyStore store = (TopologyStore) theme.topology;
+		final NodeGrid grid = store.nodeGrid(0.01);
+		assertArrayEquals(new double[]{X + 10, Y}, theme.snap(X + 10.1, Y, 0.5), 1e-9);
+		assertSame(grid, store.nodeGrid(0.01));
+	}
+
+	@Test
+	public void testFanOutWithOwnTheme() {
+		final Theme theme = new Theme("Test", new TestTopologies.ErrorTypes(), null, null,
+				TestTopologies.grid(4, new TestTopologies.ErrorTypes()));
+		final Theme other = new Theme("Other", new TestTopologies.ErrorTypes(), null, null,
+				TestTopologies.grid(4, new TestTopologies.ErrorTypes()));
+		final BoundaryBuilder boundary = new BoundaryBuilder(theme);
+		final FanOutParser fanOut = new FanOutParser();
+		fanOut.addSink(other);
+		fanOut.addSink(boundary);
+		assertThrows(IllegalArgumentException.class, () -> fanOut.addSink(theme));
+
+		final FanOutParser reversed = new FanOutParser();
+		reversed.addSink(theme);
+		assertThrows(IllegalArgumentException.class, () -> reversed.addSink(boundary));
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class CheckPipelineTest {
+
+	/**
+	 * Records the reported errors with their coordinates and parameters
+	 */
+	private static class Errors extends TestTopologies.ErrorTypes {
+
+		final List<String> errors = new ArrayList<>();
+
+		@Override
+		public void collectError(final TopologyErrorType topologyErrorType, final double x, final double y,
+				final String... parameter) {
+			super.collectError(topologyErrorType, x, y, parameter);
+			errors.add(topologyErrorType + " " + x + " " + y + " " + Arrays.toString(parameter));
+		}
+	}
+
+	@Test
+	public void testSameErrorsAsSeparateChecks() {
+		final Errors expected = new Errors();
+		final Theme separate = new Theme("Test", expected, null, null,
+				TestTopologies.grid(24, new TestTopologies.ErrorTypes()));
+		final int holes = separate.detectHoles();
+		final int surfaces = separate.detectFreeStandingSurfaces();
+		assertTrue(holes > 0);
+		assertTrue(surfaces > 1);
+
+		final Errors errors = new Errors();
+		final Theme fused = new Theme("Test", errors, null, null,
+				TestTopologies.grid(24, new TestTopologies.ErrorTypes()));
+		final long[] result = fused.runChecks(Theme.HOLES_CHECK, Theme.FREE_STANDING_SURFACES_CHECK);
+		assertEquals(4, result.length);
+		assertEquals(holes, result[0]);
+		assertEquals(surfaces, result[2]);
+		assertEquals(expected.errors, errors.errors);
+	}
+
+	@Test
+	public void testVisitors() {
+		final TopologyBuilder builder = TestTopologies.grid(8, new TestTopologies.ErrorTypes());
+		final FaceTable faces = FaceTable.build(builder);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (final int chunkSize : new int[]{1, 17, 4096}) {
+				final AtomicInteger edges = new AtomicInteger();
+				final AtomicInteger rings = new AtomicInteger();
+				final AtomicInteger faceTables = new AtomicInteger();
+				final CheckPipeline pipeline = new CheckPipeline(builder, () -> {
+					faceTables.incrementAndGet();
+					return faces;
+				}, pool, chunkSize);
+				pipeline.add((edgeIndex, errorCollector) -> {
+					edges.incrementAndGet();
+					if (edgeIndex == TopologyBuilder.TOPOLOGY_FIELDS_SIZE) {
+						errorCollector.collectError(TopologyErrorType.HOLE_EMPTY_INTERIOR, 0, 0);
+					}
+				});
+				pipeline.add((f, ring, errorCollector) -> rings.incrementAndGet());
+				// the face table is built in the timed run
+				assertEquals(0, faceTables.get());
+				final TestTopologies.ErrorTypes errors = new TestTopologies.ErrorTypes();
+				final long[] result = pipeline.run(errors);
+				assertEquals(builder.size(), edges.get());
+				assertEquals(faces.size(), rings.get());
+				assertEquals(1, faceTables.get());
+				assertEquals(1, result[0]);
+				assertEquals(0, result[2]);
+				assertEquals(1, errors.types.size());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ConnectedComponentsTest {
+
+	private final static int GRID = 8;
+
+	@Test
+	public void testComponents() {
+		final TopologyBuilder builder = TestTopologies.grid(GRID, new TestTopologies.ErrorTypes());
+		final ConnectedComponents components = ConnectedComponents.build(builder, ForkJoinPool.commonPool());
+
+		// the grid, the interior rings of the 59 cells and the islands
+		assertEquals(1 + 59 + GRID, components.size());
+		int edges = 0;
+		for (int c = 0; c < components.size(); c++) {
+			edges += components.edgeCount(c);
+			assertEquals(c, components.component(components.representativeEdge(c)));
+			if (c > 0) {
+				assertTrue(components.representativeEdge(c) > components.representativeEdge(c - 1));
+			}
+		}
+		assertEquals(builder.size(), edges);
+	}
+
+	@Test
+	public void testFreeStandingSurfaces() {
+		final TopologyBuilder builder = TestTopologies.grid(GRID, new TestTopologies.ErrorTypes());
+		final TopologyStore topology = new TopologyStore(builder);
+		int islands = 0;
+		int gaps = 0;
+		for (final Topology.Edge edge : topology.freeStandingSurfaces()) {
+			if (edge.source().x() >= TestTopologies.ORIGIN_X + 1000) {
+				islands++;
+			} else {
+				gaps++;
+			}
+		}
+		assertEquals(GRID, islands);
+		// the missing cells inside the grid, not the ones on the border
+		assertEquals(3, gaps);
+	}
+
+	@Test
+	public void testEnclosedGap() {
+		// 3x3 squares without the centre and an island
+		final TopologyBuilder builder = new TopologyBuilder("Test", new TestTopologies.ErrorTypes(), 64);
+		final HashingPosListParser parser = new HashingPosListParser(builder);
+		long location = 0;
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				if (i != 1 || j != 1) {
+					parser.nextGeometricObject();
+					parser.parseDirectPositions(TestTopologies.square(i * 10, j * 10, 10, true), false, ++location, 2);
+				}
+			}
+		}
+		parser.nextGeometricObject();
+		parser.parseDirectPositions(TestTopologies.square(100, 0, 10, true), false, ++location, 2);
+		parser.nextGeometricObject();
+
+		final TopologyStore topology = new TopologyStore(builder);
+		boolean gap = false;
+		int count = 0;
+		for (final Topology.Edge edge : topology.freeStandingSurfaces()) {
+			final double x = edge.source().x() - TestTopologies.ORIGIN_X;
+			final double y = edge.source().y() - TestTopologies.ORIGIN_Y;
+			gap |= x >= 10 && x <= 20 && y >= 10 && y <= 20;
+			count++;
+		}
+		assertEquals(2, count);
+		assertTrue(gap);
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.TIntArrayList;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class EdgeIndexTest {
+
+	private final static int SEGMENTS = 10_000;
+
+	private final double[] segments = new double[SEGMENTS * 4];
+
+	private EdgeIndex createIndex() {
+		final Random random = new Random(42);
+		final EdgeIndex index = new EdgeIndex(SEGMENTS, EdgeIndex.DEFAULT_NODE_SIZE);
+		for (int i = 0, p = 0; i < SEGMENTS; i++, p += 4) {
+			segments[p] = 367000 + random.nextDouble() * 1000;
+			segments[p + 1] = 5614000 + random.nextDouble() * 1000;
+			segments[p + 2] = segments[p] + random.nextDouble() * 10 - 5;
+			segments[p + 3] = segments[p + 1] + random.nextDouble() * 10 - 5;
+			index.add(i, Math.min(segments[p], segments[p + 2]), Math.min(segments[p + 1], segments[p + 3]),
+					Math.max(segments[p], segments[p + 2]), Math.max(segments[p + 1], segments[p + 3]));
+		}
+		index.finish();
+		return index;
+	}
+
+	private double distanceSq(final int i, final double x, final double y) {
+		return EdgeIndex.segmentDistanceSq(x, y, segments[i * 4], segments[i * 4 + 1], segments[i * 4 + 2],
+				segments[i * 4 + 3]);
+	}
+
+	@Test
+	public void testSearch() {
+		final EdgeIndex index = createIndex();
+		final Random random = new Random(7);
+		for (int q = 0; q < 100; q++) {
+			final double minX = 367000 + random.nextDouble() * 1000;
+			final double minY = 5614000 + random.nextDouble() * 1000;
+			final double maxX = minX + random.nextDouble() * 50;
+			final double maxY = minY + random.nextDouble() * 50;
+
+			final TIntArrayList expected = new TIntArrayList();
+			for (int i = 0, p = 0; i < SEGMENTS; i++, p += 4) {
+				if (Math.max(segments[p], segments[p + 2]) >= minX && Math.min(segments[p], segments[p + 2]) <= maxX
+						&& Math.max(segments[p + 1], segments[p + 3]) >= minY
+						&& Math.min(segments[p + 1], segments[p + 3]) <= maxY) {
+					expected.add(i);
+				}
+			}
+			final TIntArrayList result = new TIntArrayList();
+			index.search(minX, minY, maxX, maxY, result);
+			final int[] sorted = result.toNativeArray();
+			Arrays.sort(sorted);
+			assertArrayEquals(expected.toNativeArray(), sorted);
+		}
+	}
+
+	@Test
+	public void testNearest() {
+		final EdgeIndex index = createIndex();
+		final Random random = new Random(11);
+		for (int q = 0; q < 100; q++) {
+			final double x = 367000 + random.nextDouble() * 1000;
+			final double y = 5614000 + random.nextDouble() * 1000;
+
+			int nearest = -1;
+			double nearestDistance = Double.MAX_VALUE;
+			for (int i = 0; i < SEGMENTS; i++) {
+				final double distance = distanceSq(i, x, y);
+				if (distance < nearestDistance) {
+					nearestDistance = distance;
+					nearest = i;
+				}
+			}
+			final TIntArrayList result = new TIntArrayList();
+			index.nearest(x, y, 3, Double.MAX_VALUE, this::distanceSq, result);
+			assertEquals(3, result.size());
+			assertEquals(nearest, result.get(0));
+			assertEquals(true, distanceSq(result.get(1), x, y) <= distanceSq(result.get(2), x, y));
+		}
+
+		// maximum distance
+		final TIntArrayList result = new TIntArrayList();
+		index.nearest(0, 0, 3, 10, this::distanceSq, result);
+		assertEquals(0, result.size());
+	}
+
+	@Test
+	public void testCapacity() {
+		// the leaves fit into the array, but not the inner nodes
+		assertThrows(IllegalArgumentException.class,
+				() -> new EdgeIndex((int) (EdgeIndex.MAX_BOXES_LENGTH / 4), EdgeIndex.DEFAULT_NODE_SIZE));
+		// the leaves exceed the array length
+		assertThrows(IllegalArgumentException.class,
+				() -> new EdgeIndex(Integer.MAX_VALUE, EdgeIndex.DEFAULT_NODE_SIZE));
+	}
+}
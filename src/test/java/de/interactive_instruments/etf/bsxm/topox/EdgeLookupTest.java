@@ -0,0 +1,159 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the edge lookup by node pairs for nodes with a high and a low
+ * number of edges, compared to the previous lookup that walked
+ * counter-clockwise around the source node.
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class EdgeLookupTest {
+
+	/**
+	 * Triangles around one node
+	 */
+	private static TopologyBuilder star(final int triangles) {
+		final TopologyBuilder builder = new TopologyBuilder("Star", new TestTopologies.ErrorTypes(), 4096);
+		final HashingPosListParser parser = new HashingPosListParser(builder);
+		final String center = TestTopologies.ORIGIN_X + " " + TestTopologies.ORIGIN_Y;
+		final String[] points = new String[triangles];
+		for (int i = 0; i < triangles; i++) {
+			final double angle = 2 * Math.PI * i / triangles;
+			points[i] = String.format(Locale.ENGLISH, "%.3f %.3f", TestTopologies.ORIGIN_X + 1000 * Math.cos(angle),
+					TestTopologies.ORIGIN_Y + 1000 * Math.sin(angle));
+		}
+		for (int i = 0; i < triangles; i++) {
+			parser.nextGeometricObject();
+			parser.parseDirectPositions(center + " " + points[i] + " " + points[(i + 1) % triangles] + " " + center,
+					false, i + 1, 2);
+		}
+		parser.nextGeometricObject();
+		return builder;
+	}
+
+	private static double x(final TopologyBuilder builder, final int edgeIndex) {
+		return builder.getCoordinate(builder.getLeftOrRightByIndex(edgeIndex, COORDINATE_OFFSET));
+	}
+
+	private static double y(final TopologyBuilder builder, final int edgeIndex) {
+		return builder.getCoordinate(builder.getLeftOrRightByIndex(edgeIndex, COORDINATE_OFFSET) + 1);
+	}
+
+	/**
+	 * The previous lookup
+	 */
+	private static int walkCcw(final TopologyBuilder builder, final int sourceEdgeIndex, final int targetEdgeIndex) {
+		final int sourceCoordIndex = builder.getLeftOrRightByIndex(sourceEdgeIndex, COORDINATE_OFFSET);
+		final int targetCoordIndex = builder.getLeftOrRightByIndex(targetEdgeIndex, COORDINATE_OFFSET);
+		int ccwNext = sourceEdgeIndex;
+		for (int i = 0; i < 360; i++) {
+			final int source = builder.getLeftOrRightByIndex(ccwNext, COORDINATE_OFFSET);
+			final int target = builder.getLeftOrRightByIndex(-ccwNext, COORDINATE_OFFSET);
+			if (source == sourceCoordIndex && target == targetCoordIndex) {
+				return -ccwNext;
+			} else if (source == targetCoordIndex && target == sourceCoordIndex) {
+				return ccwNext;
+			}
+			ccwNext = builder.getLeftOrRightByIndex(ccwNext, CCWI_OFFSET);
+		}
+		return 0;
+	}
+
+	/**
+	 * Look up every edge in both directions
+	 */
+	private static void assertAllEdgesFound(final TopologyBuilder builder) {
+		final TopologyStore topology = new TopologyStore(builder);
+		final Topology.EdgeCursor cursor = topology.edgeCursor();
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < builder.internalTopologicalDataSize(); e += TOPOLOGY_FIELDS_SIZE) {
+			final int source = builder.getTargetEdge(x(builder, e), y(builder, e));
+			final int target = builder.getTargetEdge(x(builder, -e), y(builder, -e));
+			assertTrue(cursor.moveToEdge(source, target));
+			assertEquals(-e, cursor.index());
+			assertTrue(cursor.moveToEdge(target, source));
+			assertEquals(e, cursor.index());
+			assertNotNull(topology.edge(x(builder, e), y(builder, e), x(builder, -e), y(builder, -e)));
+		}
+	}
+
+	@Test
+	public void testHighDegree() {
+		// more edges at the center than the previous lookup could walk
+		assertAllEdgesFound(star(720));
+	}
+
+	@Test
+	public void testLowDegree() {
+		final TopologyBuilder builder = TestTopologies.grid(8, new TestTopologies.ErrorTypes());
+		assertAllEdgesFound(builder);
+		// nodes of the first and the last edge are not connected
+		final int last = builder.internalTopologicalDataSize() - TOPOLOGY_FIELDS_SIZE;
+		assertFalse(new TopologyStore(builder).edgeCursor().moveToEdge(
+				builder.getLeftOrRightByIndex(TOPOLOGY_FIELDS_SIZE, CCWI_OFFSET),
+				builder.getLeftOrRightByIndex(-last, CCWI_OFFSET)));
+	}
+
+	/**
+	 * The edges found through the index are the edges the previous lookup found
+	 */
+	private static void assertSameAsWalk(final TopologyBuilder builder) {
+		final Topology.EdgeCursor cursor = new TopologyStore(builder).edgeCursor();
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < builder.internalTopologicalDataSize(); e += TOPOLOGY_FIELDS_SIZE) {
+			// another edge at each node, so that the nodes have to be looked up
+			final int source = builder.getLeftOrRightByIndex(e, CCWI_OFFSET);
+			final int target = builder.getLeftOrRightByIndex(-e, CCWI_OFFSET);
+			assertTrue(cursor.moveToEdge(target, source));
+			assertEquals(walkCcw(builder, target, source), cursor.index());
+		}
+	}
+
+	@Test
+	public void testSameAsWalk() {
+		assertSameAsWalk(TestTopologies.grid(16, new TestTopologies.ErrorTypes()));
+		// the previous lookup walks at most 360 edges
+		assertSameAsWalk(star(300));
+	}
+
+	@Test
+	public void testGrowing() {
+		final TopologyBuilder builder = new TopologyBuilder("Growing", new TestTopologies.ErrorTypes(), 4096);
+		final HashingPosListParser parser = new HashingPosListParser(builder);
+		final TopologyStore topology = new TopologyStore(builder);
+		for (int i = 0; i < 50; i++) {
+			parser.nextGeometricObject();
+			parser.parseDirectPositions(TestTopologies.square(i * 10, 0, 10, true), false, i + 1, 2);
+			// the edges of the new square are found after each square
+			final int last = builder.internalTopologicalDataSize() - TOPOLOGY_FIELDS_SIZE;
+			final Topology.Edge edge = topology.edge(x(builder, last), y(builder, last), x(builder, -last),
+					y(builder, -last));
+			assertNotNull(edge);
+			assertEquals(new TopologyStore(builder).edge(x(builder, last), y(builder, last), x(builder, -last),
+					y(builder, -last)), edge);
+		}
+	}
+}
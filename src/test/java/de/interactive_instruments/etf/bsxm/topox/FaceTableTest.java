@@ -0,0 +1,77 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.TOPOLOGY_FIELDS_SIZE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class FaceTableTest {
+
+	@Test
+	public void testRings() {
+		final TopologyBuilder builder = TestTopologies.grid(8, new TestTopologies.ErrorTypes());
+		final FaceTable faces = FaceTable.build(builder);
+
+		int edges = 0;
+		double totalArea = 0;
+		int cells = 0;
+		int holes = 0;
+		for (int ring = 0; ring < faces.size(); ring++) {
+			edges += faces.edgeCount(ring);
+			totalArea += faces.area(ring);
+			assertEquals(ring, faces.ring(faces.firstEdge(ring)));
+			final double area = Math.abs(faces.area(ring));
+			if (area == 100 && faces.objectId(ring) > 0) {
+				cells++;
+			} else if (area == 16 && faces.objectId(ring) == 0) {
+				holes++;
+			}
+		}
+		// every edge is passed once in each direction
+		assertEquals(builder.size() * 2, edges);
+		// the rings of each connected part enclose the same area clockwise and counter clockwise
+		assertEquals(0, totalArea, 1E-6);
+		assertEquals(59, cells);
+		assertEquals(41, holes);
+		for (int e = TOPOLOGY_FIELDS_SIZE; e < builder.internalTopologicalDataSize(); e += TOPOLOGY_FIELDS_SIZE) {
+			final int ring = faces.ring(e);
+			final double x = builder.getCoordinate(builder.getLeftOrRightByIndex(e, TopologyBuilder.COORDINATE_OFFSET));
+			assertEquals(true, x >= faces.minX(ring) && x <= faces.maxX(ring));
+		}
+	}
+
+	@Test
+	public void testRebuiltWhenGrown() {
+		final TopologyBuilder builder = TestTopologies.grid(4, new TestTopologies.ErrorTypes());
+		final TopologyStore store = new TopologyStore(builder);
+		final FaceTable faces = store.faceTable();
+		assertSame(faces, store.faceTable());
+
+		final HashingPosListParser parser = new HashingPosListParser(builder);
+		parser.parseDirectPositions(TestTopologies.square(2000, 2000, 10, true), false, 1000, 2);
+		parser.nextGeometricObject();
+		final FaceTable grown = store.faceTable();
+		assertNotSame(faces, grown);
+		assertEquals(faces.size() + 2, grown.size());
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TestTopologies.ORIGIN_X;
+import static de.interactive_instruments.etf.bsxm.topox.TestTopologies.ORIGIN_Y;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class GeometryChecksTest {
+
+	// Ring with a duplicate point at 10 0, a spike at 5 20 and a short segment at 0 10
+	private final static double[] RING = {
+			0, 0, 10, 0, 10, 0, 10, 10, 5, 10, 5, 20, 5.01, 10, 0, 10, 0, 9.9995, 0, 0
+	};
+
+	private static String posList() {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < RING.length; i += 2) {
+			sb.append(ORIGIN_X + RING[i]).append(' ').append(ORIGIN_Y + RING[i + 1]).append(' ');
+		}
+		return sb.toString();
+	}
+
+	private static TestTopologies.ErrorTypes parse(final boolean enabled, final boolean pipelined) {
+		final TestTopologies.ErrorTypes errors = new TestTopologies.ErrorTypes();
+		final Theme theme = new Theme("Test", errors, null, null, new TopologyBuilder("Test", errors, 64),
+				pipelined);
+		if (enabled) {
+			theme.enableGeometryChecks(0.001, 1, true);
+		}
+		theme.parser.nextGeometricObject();
+		theme.parser.parseDirectPositions(posList(), false, 1, 2);
+		theme.parser.nextGeometricObject();
+		theme.finish();
+		return errors;
+	}
+
+	@Test
+	public void testChecks() {
+		for (final boolean pipelined : new boolean[]{false, true}) {
+			final TestTopologies.ErrorTypes errors = parse(true, pipelined);
+			assertEquals(1, Collections.frequency(errors.types, TopologyErrorType.DUPLICATE_POINT));
+			assertEquals(1, Collections.frequency(errors.types, TopologyErrorType.SPIKE));
+			assertEquals(1, Collections.frequency(errors.types, TopologyErrorType.SHORT_SEGMENT));
+		}
+	}
+
+	@Test
+	public void testRingChecks() {
+		for (final boolean pipelined : new boolean[]{false, true}) {
+			final TestTopologies.ErrorTypes errors = new TestTopologies.ErrorTypes();
+			final Theme theme = new Theme("Test", errors, null, null, new TopologyBuilder("Test", errors, 64),
+					pipelined);
+			theme.enableRingChecks(true, true);
+			// valid exterior, interior with wrong orientation
+			theme.parser.nextGeometricObject();
+			theme.parser.parseDirectPositions(TestTopologies.square(0, 0, 10, true), false, 1, 2);
+			theme.nextInterior();
+			theme.parser.parseDirectPositions(TestTopologies.square(3, 3, 4, true), false, 2, 2);
+			// valid polygon
+			theme.parser.nextGeometricObject();
+			theme.parser.parseDirectPositions(TestTopologies.square(10, 0, 10, true), false, 3, 2);
+			theme.nextInterior();
+			theme.parser.parseDirectPositions(TestTopologies.square(13, 3, 4, false), false, 4, 2);
+			// exterior with wrong orientation, not closed and checked on finish
+			theme.parser.nextGeometricObject();
+			final String open = TestTopologies.square(20, 0, 10, false);
+			theme.parser.parseDirectPositions(open.substring(0, open.lastIndexOf(' ', open.lastIndexOf(' ') - 1)),
+					false, 5, 2);
+			theme.finish();
+			assertEquals(1, Collections.frequency(errors.types, TopologyErrorType.INNER_RING_INVALID_CURVE_ORIENTATION));
+			assertEquals(1, Collections.frequency(errors.types, TopologyErrorType.OUTER_RING_INVALID_CURVE_ORIENTATION));
+			assertEquals(1, Collections.frequency(errors.types, TopologyErrorType.RING_NOT_CLOSED));
+		}
+	}
+
+	@Test
+	public void testDisabled() {
+		final TestTopologies.ErrorTypes errors = parse(false, false);
+		assertEquals(0, Collections.frequency(errors.types, TopologyErrorType.DUPLICATE_POINT));
+		assertEquals(0, Collections.frequency(errors.types, TopologyErrorType.SPIKE));
+		assertEquals(0, Collections.frequency(errors.types, TopologyErrorType.SHORT_SEGMENT));
+		// the same errors are reported by the topology
+		final TestTopologies.ErrorTypes enabled = parse(true, false);
+		enabled.types.removeAll(Collections.singleton(TopologyErrorType.DUPLICATE_POINT));
+		enabled.types.removeAll(Collections.singleton(TopologyErrorType.SPIKE));
+		enabled.types.removeAll(Collections.singleton(TopologyErrorType.SHORT_SEGMENT));
+		assertEquals(errors.types, enabled.types);
+	}
+}
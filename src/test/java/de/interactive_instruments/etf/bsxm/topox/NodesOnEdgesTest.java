@@ -0,0 +1,64 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.TIntArrayList;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class NodesOnEdgesTest {
+
+	private static TIntArrayList find(final TopologyBuilder builder, final double tolerance) {
+		final TIntArrayList nodes = new TIntArrayList();
+		final int count = NodesOnEdges.find(builder, EdgeIndex.build(builder), tolerance,
+				(coordIndex, edgeIndex) -> nodes.add(coordIndex));
+		assertEquals(count, nodes.size());
+		return nodes;
+	}
+
+	@Test
+	public void testVertexOnNeighbourEdge() {
+		final TopologyBuilder builder = new TopologyBuilder("Test", new TestTopologies.ErrorTypes(), 64);
+		final HashingPosListParser parser = new HashingPosListParser(builder);
+		final int x = TestTopologies.ORIGIN_X;
+		final int y = TestTopologies.ORIGIN_Y;
+		parser.nextGeometricObject();
+		parser.parseDirectPositions(TestTopologies.square(0, 0, 10, true), false, 1, 2);
+		// the right neighbour has an additional vertex in the middle of the shared side
+		parser.nextGeometricObject();
+		parser.parseDirectPositions((x + 10) + " " + y + " " + (x + 20) + " " + y + " " + (x + 20) + " " + (y + 10)
+				+ " " + (x + 10) + " " + (y + 10) + " " + (x + 10) + " " + (y + 5) + " " + (x + 10) + " " + y, false, 2, 2);
+		parser.nextGeometricObject();
+
+		final TIntArrayList nodes = find(builder, 0.001);
+		assertEquals(1, nodes.size());
+		assertEquals(x + 10, builder.getCoordinate(nodes.get(0)), 0);
+		assertEquals(y + 5, builder.getCoordinate(nodes.get(0) + 1), 0);
+
+		// the ends of the edge are within the tolerance
+		assertEquals(0, find(builder, 5).size());
+	}
+
+	@Test
+	public void testNoNodesOnEdgesInGrid() {
+		assertEquals(0, find(TestTopologies.grid(8, new TestTopologies.ErrorTypes()), 0.001).size());
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.compress;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ObjectAdjacencyTest {
+
+	private final static int A = 100;
+	private final static int B = 200;
+	private final static int C = 300;
+	private final static int D = 400;
+
+	private static long location(final int objectPre, final int posListPre) {
+		return compress(posListPre - objectPre, posListPre);
+	}
+
+	/**
+	 * Three squares in a row, the first one with a hole that is filled by a fourth square
+	 */
+	private static Topology row() {
+		final TopologyBuilder builder = new TopologyBuilder("Row", new TestTopologies.ErrorTypes(), 64);
+		final HashingPosListParser parser = new HashingPosListParser(builder);
+		parser.nextGeometricObject();
+		parser.parseDirectPositions(TestTopologies.square(0, 0, 10, true), false, location(A, A + 5), 2);
+		builder.nextInterior();
+		parser.parseDirectPositions(TestTopologies.square(3, 3, 4, false), false, location(A, A + 8), 2);
+		parser.nextGeometricObject();
+		parser.parseDirectPositions(TestTopologies.square(10, 0, 10, true), false, location(B, B + 5), 2);
+		parser.nextGeometricObject();
+		parser.parseDirectPositions(TestTopologies.square(20, 0, 10, true), false, location(C, C + 5), 2);
+		parser.nextGeometricObject();
+		parser.parseDirectPositions(TestTopologies.square(3, 3, 4, true), false, location(D, D + 5), 2);
+		parser.nextGeometricObject();
+		return new TopologyStore(builder);
+	}
+
+	private static int[] objectPres(final long[] locations) {
+		final int[] pres = new int[locations.length];
+		for (int i = 0; i < locations.length; i++) {
+			pres[i] = TopologyBuilder.getRight(locations[i]) - TopologyBuilder.getLeft(locations[i]);
+		}
+		return pres;
+	}
+
+	@Test
+	public void testNeighbours() {
+		final Topology topology = row();
+		final long objectA = compress(0, A);
+
+		// objects are ordered by the first edge they appear in
+		assertArrayEquals(new int[]{B, D}, objectPres(topology.neighbours(objectA)));
+		assertArrayEquals(new int[]{1, 4}, topology.neighbourEdgeCounts(objectA));
+		assertArrayEquals(new double[]{10, 16}, topology.neighbourLengths(objectA), 1e-9);
+
+		// the location of any posList of the object can be used
+		assertArrayEquals(topology.neighbours(objectA), topology.neighbours(location(A, A + 8)));
+
+		final int[] neighboursOfB = objectPres(topology.neighbours(location(B, B + 5)));
+		Arrays.sort(neighboursOfB);
+		assertArrayEquals(new int[]{A, C}, neighboursOfB);
+		assertArrayEquals(new int[]{A}, objectPres(topology.neighbours(compress(0, D))));
+		assertEquals(0, topology.neighbours(compress(0, 999)).length);
+	}
+
+	@Test
+	public void testObjectEdges() {
+		final Topology topology = row();
+		// internal IDs are assigned in the order of the objects
+		int edges = 0;
+		int unshared = 0;
+		for (final Topology.Edge edge : topology.objectEdges(1)) {
+			assertEquals(1, Math.abs(edge.rightInternalObjectId()));
+			edges++;
+			if (edge.leftInternalObjectId() == 0) {
+				unshared++;
+			}
+		}
+		assertEquals(8, edges);
+		assertEquals(3, unshared);
+		assertEquals(10, topology.sharedLength(1, 2), 1e-9);
+		assertEquals(16, topology.sharedLength(1, 4), 1e-9);
+		assertEquals(0, topology.sharedLength(1, 3), 1e-9);
+		assertFalse(topology.objectEdges(99).iterator().hasNext());
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_OVERLAP;
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_POINT_DETACHED;
+import static de.interactive_instruments.etf.bsxm.topox.TopologyErrorType.BOUNDARY_POINT_ON_EDGE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ParallelBoundaryParserTest {
+
+	private final static double X = TestTopologies.ORIGIN_X;
+	private final static double Y = TestTopologies.ORIGIN_Y;
+
+	private final static String[] POS_LISTS = {
+			TestTopologies.square(10, 0, 10, true),
+			TestTopologies.square(20, 0, 10, false),
+			// shifted by a millimetre
+			(X + 10.001) + " " + (Y + 0.001) + " " + (X + 20.001) + " " + (Y + 0.001) + " " + (X + 20.001) + " "
+					+ (Y + 10.001) + " " + (X + 10.001) + " " + (Y + 10.001) + " " + (X + 10.001) + " " + (Y + 0.001),
+			// a point on an edge and a point inside a cell
+			(X + 10) + " " + Y + " " + (X + 15) + " " + (Y + 0.002) + " " + (X + 15) + " " + (Y + 1.5)
+	};
+	private final static long[] SELECTIONS = {1, 1, 2, 4};
+
+	// Line features with the posLists of each geometry
+	private final static String[][] LINES = {
+			// two posLists that continue each other
+			{line(0, 20, 10, 20, 20, 20), line(20, 20, 30, 20, 40, 20)},
+			// ends where the next line starts, on the outline
+			{line(40, 0, 40, 10, 40, 20, 40, 30, 40, 40)},
+			{line(40, 40, 30, 40, 20, 40, 10, 40, 0, 40)},
+			// starts at a point that is not a node
+			{line(0, 25, 0, 30, 0, 40)},
+	};
+
+	private static String line(final int... coordinates) {
+		final StringBuilder posList = new StringBuilder();
+		for (int i = 0; i < coordinates.length; i += 2) {
+			posList.append(X + coordinates[i]).append(' ').append(Y + coordinates[i + 1]).append(' ');
+		}
+		return posList.toString().trim();
+	}
+
+	@Test
+	public void testSameErrorsInOrderOfBoundaryBuilders() {
+		final List<TopologyErrorType> expected = new ArrayList<>();
+		expected.add(BOUNDARY_OVERLAP);
+		expected.addAll(Collections.nCopies(5, BOUNDARY_POINT_DETACHED));
+		expected.addAll(Arrays.asList(BOUNDARY_POINT_ON_EDGE, BOUNDARY_POINT_DETACHED));
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int run = 0; run < 10; run++) {
+				final TestTopologies.ErrorTypes errors = new TestTopologies.ErrorTypes();
+				final Theme theme = new Theme("Test", errors, null, null,
+						TestTopologies.grid(4, new TestTopologies.ErrorTypes()));
+				final List<BoundaryBuilder> boundaryBuilders = Arrays.asList(new BoundaryBuilder(theme),
+						new BoundaryBuilder(theme), new BoundaryBuilder(theme, 0.01));
+				final ParallelBoundaryParser parallelParser = new ParallelBoundaryParser(boundaryBuilders, pool);
+				// the objects are recorded in reverse order
+				for (int i = POS_LISTS.length - 1; i >= 0; i--) {
+					parallelParser.select(SELECTIONS[i]);
+					parallelParser.parser.nextGeometricObject();
+					parallelParser.parser.parseDirectPositions(POS_LISTS[i], false, i + 1, 2);
+				}
+				assertEquals(0, errors.types.size());
+				parallelParser.parse();
+				assertEquals(expected, errors.types);
+				assertEquals(7, boundaryBuilders.get(0).coveredEdges());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSameResultAsSequentialParserForLines() {
+		final TestTopologies.ErrorTypes sequentialErrors = new TestTopologies.ErrorTypes();
+		final BoundaryBuilder sequential = new BoundaryBuilder(new Theme("Test", sequentialErrors, null, null,
+				TestTopologies.grid(4, new TestTopologies.ErrorTypes())));
+		long location = 0;
+		for (final String[] geometry : LINES) {
+			sequential.parser.nextGeometricObject();
+			for (final String posList : geometry) {
+				sequential.parser.parseDirectPositions(posList, false, ++location, 2);
+			}
+		}
+		assertEquals(13, sequential.coveredEdges());
+		final int uncoveredEdges = sequential.detectUncoveredEdges();
+		assertEquals(BOUNDARY_POINT_DETACHED, sequentialErrors.types.get(0));
+
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			final List<TestTopologies.ErrorTypes> errors = Arrays.asList(new TestTopologies.ErrorTypes(),
+					new TestTopologies.ErrorTypes());
+			final List<BoundaryBuilder> boundaryBuilders = new ArrayList<>();
+			for (final TestTopologies.ErrorTypes errorTypes : errors) {
+				boundaryBuilders.add(new BoundaryBuilder(new Theme("Test", errorTypes, null, null,
+						TestTopologies.grid(4, new TestTopologies.ErrorTypes()))));
+			}
+			// one batch per posList
+			final ParallelBoundaryParser parallelParser = new ParallelBoundaryParser(boundaryBuilders, pool, 1);
+			location = 0;
+			for (final String[] geometry : LINES) {
+				parallelParser.parser.nextGeometricObject();
+				for (final String posList : geometry) {
+					parallelParser.parser.parseDirectPositions(posList, false, ++location, 2);
+				}
+			}
+			parallelParser.parse();
+
+			for (int i = 0; i < boundaryBuilders.size(); i++) {
+				assertEquals(13, boundaryBuilders.get(i).coveredEdges());
+				assertEquals(uncoveredEdges, boundaryBuilders.get(i).detectUncoveredEdges());
+				assertEquals(sequentialErrors.types, errors.get(i).types);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
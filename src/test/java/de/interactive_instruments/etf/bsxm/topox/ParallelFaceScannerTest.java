@@ -0,0 +1,90 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.TOPOLOGY_FIELDS_SIZE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.TIntArrayList;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class ParallelFaceScannerTest {
+
+	private final static int GRID = 24;
+
+	@Test
+	public void testSameResultAsSequentialScan() {
+		final TopologyBuilder builder = TestTopologies.grid(GRID, new TestTopologies.ErrorTypes());
+
+		final TIntArrayList expectedInteriors = new TIntArrayList();
+		final EdgeBitSet visited = builder.newEdgeBitSet();
+		for (int i = builder.findNextEmptyInterior(TOPOLOGY_FIELDS_SIZE, visited); i < builder
+				.internalTopologicalDataSize(); i = builder.findNextEmptyInterior(i + TOPOLOGY_FIELDS_SIZE, visited)) {
+			expectedInteriors.add(i);
+		}
+		assertTrue(expectedInteriors.size() > 0);
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (final int chunkSize : new int[]{1, 3, 17, 100_000}) {
+				final ParallelFaceScanner scanner = new ParallelFaceScanner(builder, pool, chunkSize);
+				for (int run = 0; run < 5; run++) {
+					assertEquals(expectedInteriors, scanner.emptyInteriors());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSameFaceTableAsSequentialWalk() {
+		final TopologyBuilder builder = TestTopologies.grid(GRID, new TestTopologies.ErrorTypes());
+		final FaceTable expected = FaceTable.build(builder);
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (final int chunkSize : new int[]{1, 3, 17, 100_000}) {
+				final ParallelFaceScanner scanner = new ParallelFaceScanner(builder, pool, chunkSize);
+				for (int run = 0; run < 5; run++) {
+					final FaceTable faces = scanner.faceTable();
+					assertEquals(expected.size(), faces.size());
+					for (int ring = 0; ring < faces.size(); ring++) {
+						assertEquals(expected.firstEdge(ring), faces.firstEdge(ring));
+						assertEquals(expected.edgeCount(ring), faces.edgeCount(ring));
+						assertEquals(expected.area(ring), faces.area(ring));
+						assertEquals(expected.minX(ring), faces.minX(ring));
+						assertEquals(expected.maxY(ring), faces.maxY(ring));
+						assertEquals(expected.object(ring), faces.object(ring));
+					}
+					for (int e = TOPOLOGY_FIELDS_SIZE; e < builder.internalTopologicalDataSize(); e += TOPOLOGY_FIELDS_SIZE) {
+						assertEquals(expected.ring(e), faces.ring(e));
+						assertEquals(expected.ring(-e), faces.ring(-e));
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
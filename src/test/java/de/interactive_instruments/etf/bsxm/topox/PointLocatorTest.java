@@ -0,0 +1,95 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.TDoubleArrayList;
+import gnu.trove.TLongArrayList;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class PointLocatorTest {
+
+	private final static int GRID = 12;
+
+	@Test
+	public void testObjectAt() {
+		final Topology topology = new TopologyStore(TestTopologies.grid(GRID, new TestTopologies.ErrorTypes()));
+
+		// the locations are numbered like in the grid
+		final TDoubleArrayList points = new TDoubleArrayList();
+		final TLongArrayList expected = new TLongArrayList();
+		long location = 0;
+		for (int i = 0; i < GRID; i++) {
+			for (int j = 0; j < GRID; j++) {
+				final double x = TestTopologies.ORIGIN_X + i * 10;
+				final double y = TestTopologies.ORIGIN_Y + j * 10;
+				if ((i * 7 + j * 3) % 11 == 0) {
+					// missing cell
+					points.add(x + 1.5);
+					points.add(y + 1.5);
+					expected.add(0);
+					continue;
+				}
+				final long exterior = ++location;
+				++location;
+				points.add(x + 1.5);
+				points.add(y + 1.5);
+				expected.add(exterior);
+				// interior ring, filled or empty
+				points.add(x + 5);
+				points.add(y + 5.5);
+				expected.add((i + j) % 3 == 0 ? ++location : 0);
+			}
+			points.add(TestTopologies.ORIGIN_X + 1000 + i * 10 + 2.5);
+			points.add(TestTopologies.ORIGIN_Y + 1002.5);
+			expected.add(++location);
+		}
+		// outside of all objects
+		points.add(TestTopologies.ORIGIN_X - 100);
+		points.add(TestTopologies.ORIGIN_Y);
+		expected.add(0);
+		points.add(TestTopologies.ORIGIN_X + 10_000);
+		points.add(TestTopologies.ORIGIN_Y);
+		expected.add(0);
+
+		assertArrayEquals(expected.toNativeArray(), topology.objectsAt(points.toNativeArray()));
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i), topology.objectAt(points.get(i * 2), points.get(i * 2 + 1)));
+		}
+	}
+
+	@Test
+	public void testFaceAt() {
+		final Topology topology = new TopologyStore(TestTopologies.grid(GRID, new TestTopologies.ErrorTypes()));
+		// empty interior ring of the cell 0, 1
+		final Topology.Edge face = topology.faceAt(TestTopologies.ORIGIN_X + 5, TestTopologies.ORIGIN_Y + 15.5);
+		assertNotNull(face);
+		int edges = 1;
+		for (Topology.Edge next = face.targetCcwNext(); !next.equals(face); next = next.targetCcwNext()) {
+			edges++;
+		}
+		assertEquals(4, edges);
+		assertNull(topology.faceAt(TestTopologies.ORIGIN_X + 10_000, TestTopologies.ORIGIN_Y));
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static de.interactive_instruments.etf.bsxm.topox.TopologyBuilder.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.TLongArrayList;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class SegmentIntersectionsTest {
+
+	/**
+	 * Randomly placed and rotated squares
+	 */
+	private static TopologyBuilder randomSquares(final int count) {
+		return randomSquares(count, 0);
+	}
+
+	/**
+	 * Randomly placed and rotated squares, every n-th square is spread over a
+	 * 100 times wider area than the others
+	 */
+	private static TopologyBuilder randomSquares(final int count, final int spreadEvery) {
+		final TopologyBuilder builder = new TopologyBuilder("Random", new TestTopologies.ErrorTypes(), 4096);
+		final HashingPosListParser parser = new HashingPosListParser(builder);
+		final Random random = new Random(42);
+		for (int i = 0; i < count; i++) {
+			final double width = spreadEvery > 0 && i % spreadEvery == 0 ? 200_000 : 2000;
+			final double cx = TestTopologies.ORIGIN_X + random.nextDouble() * width;
+			final double cy = TestTopologies.ORIGIN_Y + random.nextDouble() * 2000;
+			final double size = 5 + random.nextDouble() * 40;
+			final double angle = random.nextDouble() * Math.PI;
+			final StringBuilder posList = new StringBuilder();
+			for (int c = 0; c <= 4; c++) {
+				final double a = angle + (c % 4) * Math.PI / 2;
+				posList.append(String.format(Locale.ENGLISH, "%.3f %.3f ", cx + size * Math.cos(a),
+						cy + size * Math.sin(a)));
+			}
+			parser.nextGeometricObject();
+			parser.parseDirectPositions(posList.toString().trim(), false, i + 1, 2);
+		}
+		parser.nextGeometricObject();
+		return builder;
+	}
+
+	private static double orientation(final double ax, final double ay, final double bx, final double by,
+			final double cx, final double cy) {
+		return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+	}
+
+	/**
+	 * Test all pairs of edges
+	 */
+	private static TLongArrayList bruteForce(final TopologyBuilder builder) {
+		final TLongArrayList pairs = new TLongArrayList();
+		final int size = builder.internalTopologicalDataSize();
+		for (int a = TOPOLOGY_FIELDS_SIZE; a < size; a += TOPOLOGY_FIELDS_SIZE) {
+			final long aIndices = builder.getTopologicalData(a + COORDINATE_OFFSET);
+			final double ax1 = builder.getCoordinate(getLeft(aIndices));
+			final double ay1 = builder.getCoordinate(getLeft(aIndices) + 1);
+			final double ax2 = builder.getCoordinate(getRight(aIndices));
+			final double ay2 = builder.getCoordinate(getRight(aIndices) + 1);
+			for (int b = a + TOPOLOGY_FIELDS_SIZE; b < size; b += TOPOLOGY_FIELDS_SIZE) {
+				final long bIndices = builder.getTopologicalData(b + COORDINATE_OFFSET);
+				final double bx1 = builder.getCoordinate(getLeft(bIndices));
+				final double by1 = builder.getCoordinate(getLeft(bIndices) + 1);
+				final double bx2 = builder.getCoordinate(getRight(bIndices));
+				final double by2 = builder.getCoordinate(getRight(bIndices) + 1);
+				final double d1 = orientation(ax1, ay1, ax2, ay2, bx1, by1);
+				final double d2 = orientation(ax1, ay1, ax2, ay2, bx2, by2);
+				final double d3 = orientation(bx1, by1, bx2, by2, ax1, ay1);
+				final double d4 = orientation(bx1, by1, bx2, by2, ax2, ay2);
+				if (d1 * d2 < 0 && d3 * d4 < 0) {
+					pairs.add(compress(a, b));
+				}
+			}
+		}
+		pairs.sort();
+		return pairs;
+	}
+
+	private static TLongArrayList sweep(final TopologyBuilder builder, final ForkJoinPool pool) {
+		final TLongArrayList pairs = new TLongArrayList();
+		final int count = SegmentIntersections.build(builder).find(pool,
+				(x, y, edgeIndex, otherEdgeIndex) -> pairs.add(compress(edgeIndex, otherEdgeIndex)));
+		assertEquals(count, pairs.size());
+		return pairs;
+	}
+
+	@Test
+	public void testSameResultAsBruteForce() {
+		final TopologyBuilder builder = randomSquares(1500);
+		final TLongArrayList expected = bruteForce(builder);
+		assertTrue(expected.size() > 100);
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final TLongArrayList parallel = sweep(builder, pool);
+			// the order only depends on the strips
+			assertEquals(sweep(builder, new ForkJoinPool(1)), parallel);
+			parallel.sort();
+			assertEquals(expected, parallel);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testClustered() {
+		final TopologyBuilder builder = randomSquares(1500, 10);
+		final SegmentIntersections intersections = SegmentIntersections.build(builder);
+		// with strips of equal width, almost all edges are in the first strip
+		assertTrue(intersections.strips() > 3);
+		for (int strip = 0; strip < intersections.strips(); strip++) {
+			assertTrue(intersections.stripSize(strip) < builder.size() / 2);
+		}
+		final TLongArrayList pairs = sweep(builder, ForkJoinPool.commonPool());
+		pairs.sort();
+		assertEquals(bruteForce(builder), pairs);
+	}
+
+	@Test
+	public void testNoCrossingsInGrid() {
+		final TopologyBuilder builder = TestTopologies.grid(10, new TestTopologies.ErrorTypes());
+		assertEquals(0, sweep(builder, ForkJoinPool.commonPool()).size());
+	}
+}
@@ -16,6 +16,7 @@
 package de.interactive_instruments.etf.bsxm.topox;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -200,4 +201,89 @@ public class SegmentLineParserTest {
 		assertEquals(Double.valueOf(coordinates[11]), testLineSegmentHandler.getCoordinates().get(3).getRight());
 	}
 
+	@Test
+	public void testMultipleBatches() {
+
+		final TestHashingSegmentHandler testLineSegmentHandler = new TestHashingSegmentHandler();
+		final HashingPosListParser parser = new HashingPosListParser(testLineSegmentHandler);
+
+		// more coordinates than fit into one batch, including duplicates at the batch borders
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1500; i++) {
+			sb.append(i).append(".5 ").append(i).append(".25 ");
+			if (i % 511 == 0) {
+				sb.append(i).append(".5 ").append(i).append(".25 ");
+			}
+		}
+
+		parser.parseDirectPositions(sb.toString(), false, 1, 2);
+		assertEquals(1500, testLineSegmentHandler.getCoordinates().size());
+		for (int i = 0; i < 1500; i++) {
+			assertEquals(i + 0.5, testLineSegmentHandler.getCoordinates().get(i).getLeft());
+			assertEquals(i + 0.25, testLineSegmentHandler.getCoordinates().get(i).getRight());
+		}
+	}
+
+	@Test
+	public void testPipelined() {
+
+		final List<String> calls = new ArrayList<>();
+		final HashingSegmentHandler recorder = new HashingSegmentHandler() {
+			@Override
+			public void coordinate2d(final double x, final double y, final long hash, final long location, final int type) {
+				calls.add(x + " " + y + " " + location);
+			}
+
+			@Override
+			public void nextGeometricObject() {
+				calls.add("object");
+			}
+
+			@Override
+			public void nextInterior() {
+				calls.add("interior");
+			}
+		};
+		// Small ring buffer to force back-pressure and posLists that span multiple slots
+		final PipelinedSegmentHandler pipeline = new PipelinedSegmentHandler("test", recorder, 2, 8);
+		final HashingPosListParser parser = new HashingPosListParser(pipeline);
+
+		final List<String> expected = new ArrayList<>();
+		for (int o = 0; o < 100; o++) {
+			parser.nextGeometricObject();
+			expected.add("object");
+			for (int r = 0; r < 3; r++) {
+				if (r > 0) {
+					pipeline.nextInterior();
+					expected.add("interior");
+				}
+				final StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < 10 + o % 7; i++) {
+					sb.append(o * 100 + i).append(' ').append(r).append(".5 ");
+					expected.add((double) (o * 100 + i) + " " + (r + 0.5) + " " + (o * 3 + r));
+				}
+				parser.parseDirectPositions(sb.toString(), false, o * 3 + r, 2);
+			}
+		}
+		pipeline.sync();
+		assertEquals(expected, calls);
+		assertFalse(consumerRunning());
+
+		// the slots are allocated and the consumer is started again after a release
+		pipeline.release();
+		parser.nextGeometricObject();
+		pipeline.sync();
+		expected.add("object");
+		assertEquals(expected, calls);
+		assertFalse(consumerRunning());
+	}
+
+	private static boolean consumerRunning() {
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals("TopoX-builder-test")) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.TDoubleArrayList;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class SliversTest {
+
+	private static TDoubleArrayList find(final TopologyBuilder builder, final double tolerance, final double minArea) {
+		final TDoubleArrayList areas = new TDoubleArrayList();
+		final int count = Slivers.find(builder, EdgeIndex.build(builder), tolerance, minArea,
+				(edgeIndex, otherEdgeIndex, polygon, area) -> {
+					assertEquals(polygon[0], polygon[8], 0);
+					assertEquals(polygon[1], polygon[9], 0);
+					areas.add(area);
+				});
+		assertEquals(count, areas.size());
+		return areas;
+	}
+
+	@Test
+	public void testGapBetweenNeighbours() {
+		final TopologyBuilder builder = new TopologyBuilder("Test", new TestTopologies.ErrorTypes(), 64);
+		final HashingPosListParser parser = new HashingPosListParser(builder);
+		final double x = TestTopologies.ORIGIN_X + 10.02;
+		final double y = TestTopologies.ORIGIN_Y;
+		parser.nextGeometricObject();
+		parser.parseDirectPositions(TestTopologies.square(0, 0, 10, true), false, 1, 2);
+		// the right neighbour is shifted by 2 cm and slightly rotated, the gap is 6 cm wide at the top
+		parser.nextGeometricObject();
+		parser.parseDirectPositions(x + " " + y + " " + (x + 10) + " " + y + " " + (x + 10) + " " + (y + 10) + " "
+				+ (x + 0.04) + " " + (y + 10) + " " + x + " " + y, false, 2, 2);
+		parser.nextGeometricObject();
+
+		final TDoubleArrayList areas = find(builder, 0.1, 0);
+		assertEquals(1, areas.size());
+		assertEquals(0.4, areas.get(0), 1e-6);
+
+		assertEquals(0, find(builder, 0.05, 0).size());
+		assertEquals(0, find(builder, 0.1, 0.5).size());
+	}
+
+	@Test
+	public void testNoSliversInGrid() {
+		assertEquals(0, find(TestTopologies.grid(8, new TestTopologies.ErrorTypes()), 0.1, 0).size());
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds small topologies for the tests
+ *
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+final class TestTopologies {
+
+	// the coordinate hashing is designed for projected coordinates
+	final static int ORIGIN_X = 300_000;
+	final static int ORIGIN_Y = 5_600_000;
+
+	private TestTopologies() {}
+
+	/**
+	 * Records the types of the reported errors
+	 */
+	static class ErrorTypes implements TopologyErrorCollector {
+
+		final List<TopologyErrorType> types = new ArrayList<>();
+
+		@Override
+		public void init() {}
+
+		@Override
+		public void collectError(final TopologyErrorType topologyErrorType, final String... parameter) {
+			types.add(topologyErrorType);
+		}
+
+		@Override
+		public void collectError(final TopologyErrorType topologyErrorType, final double x, final double y,
+				final String... parameter) {
+			types.add(topologyErrorType);
+		}
+
+		@Override
+		public void release() {}
+	}
+
+	/**
+	 * Get the posList of a square, relative to the origin
+	 */
+	static String square(final int offsetX, final int offsetY, final int size, final boolean ccw) {
+		final int x = ORIGIN_X + offsetX;
+		final int y = ORIGIN_Y + offsetY;
+		final int x2 = x + size;
+		final int y2 = y + size;
+		if (ccw) {
+			return x + " " + y + " " + x2 + " " + y + " " + x2 + " " + y2 + " " + x + " " + y2 + " " + x + " " + y;
+		}
+		return x + " " + y + " " + x + " " + y2 + " " + x2 + " " + y2 + " " + x2 + " " + y + " " + x + " " + y;
+	}
+
+	/**
+	 * Grid of 10x10 cells with an interior ring each. Some interior rings are filled,
+	 * some cells are missing and a row of islands lies outside the grid.
+	 */
+	static TopologyBuilder grid(final int size, final TopologyErrorCollector errorCollector) {
+		final TopologyBuilder builder = new TopologyBuilder("Test", errorCollector, 4096);
+		final HashingPosListParser parser = new HashingPosListParser(builder);
+		long location = 0;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if ((i * 7 + j * 3) % 11 == 0) {
+					continue;
+				}
+				parser.nextGeometricObject();
+				parser.parseDirectPositions(square(i * 10, j * 10, 10, true), false, ++location, 2);
+				builder.nextInterior();
+				parser.parseDirectPositions(square(i * 10 + 3, j * 10 + 3, 4, false), false, ++location, 2);
+				if ((i + j) % 3 == 0) {
+					parser.nextGeometricObject();
+					parser.parseDirectPositions(square(i * 10 + 3, j * 10 + 3, 4, true), false, ++location, 2);
+				}
+			}
+			parser.nextGeometricObject();
+			parser.parseDirectPositions(square(1000 + i * 10, 1000, 5, true), false, ++location, 2);
+		}
+		parser.nextGeometricObject();
+		return builder;
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2010-2018 interactive instruments GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.interactive_instruments.etf.bsxm.topox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jon Herrmann ( herrmann aT interactive-instruments doT de )
+ */
+public class UncoveredEdgesTest {
+
+	/**
+	 * Block of 2x2 squares
+	 */
+	private static Theme block(final TopologyBuilder builder) {
+		final Theme theme = new Theme("Test", new TestTopologies.ErrorTypes(), null, null, builder);
+		int location = 0;
+		for (int i = 0; i < 2; i++) {
+			for (int j = 0; j < 2; j++) {
+				theme.parser.nextGeometricObject();
+				theme.parser.parseDirectPositions(TestTopologies.square(i * 10, j * 10, 10, true), false, ++location,
+						2);
+			}
+		}
+		theme.parser.nextGeometricObject();
+		return theme;
+	}
+
+	/**
+	 * Number of points of each polyline
+	 */
+	private static List<Integer> polylines(final TopologyBuilder builder, final EdgeBitSet covered) {
+		final List<Integer> points = new ArrayList<>();
+		final int count = UncoveredEdges.find(builder, covered,
+				(firstEdgeIndex, coordinates) -> points.add(coordinates.size() / 2));
+		assertEquals(count, points.size());
+		return points;
+	}
+
+	@Test
+	public void testClosedOutline() {
+		final TopologyBuilder builder = new TopologyBuilder("Test", new TestTopologies.ErrorTypes(), 64);
+		block(builder);
+		final List<Integer> points = polylines(builder, builder.newEdgeBitSet());
+		// 8 outline edges, the inner edges are not reported
+		assertEquals(1, points.size());
+		assertEquals(9, (int) points.get(0));
+	}
+
+	@Test
+	public void testPartlyCovered() {
+		final TopologyBuilder builder = new TopologyBuilder("Test", new TestTopologies.ErrorTypes(), 64);
+		final Theme theme = block(builder);
+		final BoundaryBuilder boundary = new BoundaryBuilder(theme);
+		boundary.parser.nextGeometricObject();
+		boundary.parser.parseDirectPositions(TestTopologies.square(0, 0, 10, true), false, 1, 2);
+		final List<Integer> points = polylines(builder, boundary.coverage());
+		assertEquals(1, points.size());
+		assertEquals(7, (int) points.get(0));
+
+		// the outline is split into two polylines
+		boundary.parser.nextGeometricObject();
+		boundary.parser.parseDirectPositions(TestTopologies.square(10, 10, 10, true), false, 2, 2);
+		assertEquals(2, polylines(builder, boundary.coverage()).size());
+	}
+}